@@ -0,0 +1,13 @@
+package android.app;
+
+import android.content.Context;
+import android.content.res.Resources;
+
+/**
+ * JVM shadow of {@code android.app.Activity}, only present for class resolution
+ */
+public class Activity extends Context {
+    public Activity(Resources resources) {
+        super(resources);
+    }
+}
@@ -0,0 +1,54 @@
+package android.content;
+
+import android.content.res.Resources;
+import android.hardware.display.DisplayManager;
+import android.view.Display;
+import android.view.WindowManager;
+
+/**
+ * JVM shadow of {@code android.content.Context} backed by a {@link Resources} shadow
+ */
+public class Context {
+    private static final Display DISPLAY = new Display();
+    private static final WindowManager WINDOW_MANAGER = new WindowManager() {
+        @Override
+        public Display getDefaultDisplay() {
+            return DISPLAY;
+        }
+    };
+    private static final DisplayManager DISPLAY_MANAGER = new DisplayManager();
+
+    private final Resources resources;
+
+    public Context(Resources resources) {
+        this.resources = resources;
+    }
+
+    public Resources getResources() {
+        return resources;
+    }
+
+    public Context getApplicationContext() {
+        return this;
+    }
+
+    public void registerComponentCallbacks(ComponentCallbacks callback) {
+    }
+
+    public void unregisterComponentCallbacks(ComponentCallbacks callback) {
+    }
+
+    public Object getSystemService(String name) {
+        if ("window".equals(name)) {
+            return WINDOW_MANAGER;
+        }
+        if ("display".equals(name)) {
+            return DISPLAY_MANAGER;
+        }
+        return null;
+    }
+
+    public ClassLoader getClassLoader() {
+        return Context.class.getClassLoader();
+    }
+}
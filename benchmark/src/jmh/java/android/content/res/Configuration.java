@@ -0,0 +1,18 @@
+package android.content.res;
+
+/**
+ * JVM shadow of {@code android.content.res.Configuration}
+ */
+public class Configuration {
+    public static final int ORIENTATION_PORTRAIT = 1;
+    public static final int ORIENTATION_LANDSCAPE = 2;
+    public static final int SCREENLAYOUT_SIZE_MASK = 0x0f;
+    public static final int SCREENLAYOUT_SIZE_NORMAL = 0x02;
+    public static final int SCREENLAYOUT_SIZE_LARGE = 0x03;
+
+    public int orientation = ORIENTATION_PORTRAIT;
+    public int screenLayout = SCREENLAYOUT_SIZE_NORMAL;
+    public int screenWidthDp = 392;
+    public int screenHeightDp = 781;
+    public int densityDpi = 440;
+}
@@ -0,0 +1,57 @@
+package android.content.res;
+
+import android.util.DisplayMetrics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * JVM shadow of {@code android.content.res.Resources}
+ * <p>
+ * Identifiers are looked up by "type/name" string like the framework does.
+ */
+public class Resources {
+    private static final Resources SYSTEM = new Resources();
+
+    private final Configuration configuration = new Configuration();
+    private final DisplayMetrics displayMetrics = new DisplayMetrics();
+    private final Map<String, Integer> identifiers = new HashMap<>();
+    private final Map<Integer, Object> values = new HashMap<>();
+
+    public Resources() {
+        define(0x01050000, "dimen", "status_bar_height", 66);
+        define(0x01050001, "dimen", "navigation_bar_height", 132);
+        define(0x01050002, "dimen", "navigation_bar_height_landscape", 132);
+        define(0x01110000, "bool", "config_showNavigationBar", Boolean.TRUE);
+    }
+
+    public static Resources getSystem() {
+        return SYSTEM;
+    }
+
+    public void define(int id, String type, String name, Object value) {
+        identifiers.put(type + "/" + name, id);
+        values.put(id, value);
+    }
+
+    public int getIdentifier(String name, String defType, String defPackage) {
+        Integer id = identifiers.get(defType + "/" + name);
+        return id != null ? id : 0;
+    }
+
+    public int getDimensionPixelSize(int id) {
+        return (Integer) values.get(id);
+    }
+
+    public boolean getBoolean(int id) {
+        return (Boolean) values.get(id);
+    }
+
+    public Configuration getConfiguration() {
+        return configuration;
+    }
+
+    public DisplayMetrics getDisplayMetrics() {
+        return displayMetrics;
+    }
+}
@@ -0,0 +1,28 @@
+package android.hardware.display;
+
+import android.os.Handler;
+import android.view.Display;
+
+/**
+ * JVM shadow of {@code android.hardware.display.DisplayManager}, displays never change in benchmarks
+ */
+public final class DisplayManager {
+
+    public interface DisplayListener {
+        void onDisplayAdded(int displayId);
+
+        void onDisplayRemoved(int displayId);
+
+        void onDisplayChanged(int displayId);
+    }
+
+    public void registerDisplayListener(DisplayListener listener, Handler handler) {
+    }
+
+    public void unregisterDisplayListener(DisplayListener listener) {
+    }
+
+    public Display getDisplay(int displayId) {
+        return null;
+    }
+}
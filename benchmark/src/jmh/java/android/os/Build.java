@@ -0,0 +1,22 @@
+package android.os;
+
+/**
+ * JVM shadow of {@code android.os.Build}, fields are writable for benchmark setup
+ */
+public class Build {
+    public static String BRAND = "Xiaomi";
+    public static String MANUFACTURER = "Xiaomi";
+    public static String DEVICE = "sirius";
+    public static String MODEL = "MI 8 SE";
+    public static String ID = "OPM1.171019.019";
+    public static String DISPLAY = "OPM1.171019.019";
+    public static String FINGERPRINT = "Xiaomi/sirius/sirius:8.1.0/OPM1.171019.019/V10.0.2.0.OEBCNFH:user/release-keys";
+
+    public static class VERSION {
+        public static int SDK_INT = 27;
+    }
+
+    private static String getString(String property) {
+        return "";
+    }
+}
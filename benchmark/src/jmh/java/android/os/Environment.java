@@ -0,0 +1,14 @@
+package android.os;
+
+import java.io.File;
+
+/**
+ * JVM shadow of {@code android.os.Environment}, root directory is taken from system property
+ */
+public class Environment {
+    public static final String PROPERTY_ROOT_DIRECTORY = "devicecompat.benchmark.root";
+
+    public static File getRootDirectory() {
+        return new File(System.getProperty(PROPERTY_ROOT_DIRECTORY, "/system"));
+    }
+}
@@ -0,0 +1,10 @@
+package android.os;
+
+/**
+ * JVM shadow of {@code android.os.Handler}, only present for class resolution
+ */
+public class Handler {
+
+    public Handler(Looper looper) {
+    }
+}
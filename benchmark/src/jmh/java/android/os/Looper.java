@@ -0,0 +1,16 @@
+package android.os;
+
+/**
+ * JVM shadow of {@code android.os.Looper}, benchmark threads are never main thread
+ */
+public final class Looper {
+    private static final Looper MAIN = new Looper();
+
+    public static Looper getMainLooper() {
+        return MAIN;
+    }
+
+    public static Looper myLooper() {
+        return null;
+    }
+}
@@ -0,0 +1,12 @@
+package android.provider;
+
+/**
+ * JVM shadow of {@code android.provider.Settings}, only present for class resolution
+ */
+public final class Settings {
+    public static class SettingNotFoundException extends Exception {
+        public SettingNotFoundException(String msg) {
+            super(msg);
+        }
+    }
+}
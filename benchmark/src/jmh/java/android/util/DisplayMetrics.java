@@ -0,0 +1,14 @@
+package android.util;
+
+/**
+ * JVM shadow of {@code android.util.DisplayMetrics}
+ */
+public class DisplayMetrics {
+    public int widthPixels = 1080;
+    public int heightPixels = 2244;
+    public float density = 2.75F;
+    public int densityDpi = 440;
+    public float scaledDensity = 2.75F;
+    public float xdpi = 440F;
+    public float ydpi = 440F;
+}
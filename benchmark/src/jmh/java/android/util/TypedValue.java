@@ -0,0 +1,13 @@
+package android.util;
+
+/**
+ * JVM shadow of {@code android.util.TypedValue}, only dip and px units
+ */
+public class TypedValue {
+    public static final int COMPLEX_UNIT_PX = 0;
+    public static final int COMPLEX_UNIT_DIP = 1;
+
+    public static float applyDimension(int unit, float value, DisplayMetrics metrics) {
+        return unit == COMPLEX_UNIT_DIP ? value * metrics.density : value;
+    }
+}
@@ -0,0 +1,23 @@
+package android.view;
+
+import android.graphics.Point;
+import android.util.DisplayMetrics;
+
+/**
+ * JVM shadow of {@code android.view.Display}, built-in display of {@link DisplayMetrics} defaults
+ */
+public final class Display {
+
+    public int getDisplayId() {
+        return 0;
+    }
+
+    public void getMetrics(DisplayMetrics outMetrics) {
+    }
+
+    public void getRealMetrics(DisplayMetrics outMetrics) {
+    }
+
+    public void getCurrentSizeRange(Point outSmallestSize, Point outLargestSize) {
+    }
+}
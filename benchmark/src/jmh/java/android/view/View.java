@@ -0,0 +1,8 @@
+package android.view;
+
+/**
+ * JVM shadow of {@code android.view.View}, only present for class resolution
+ */
+public class View {
+    public static final int SYSTEM_UI_FLAG_LIGHT_STATUS_BAR = 0x00002000;
+}
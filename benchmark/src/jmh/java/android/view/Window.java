@@ -0,0 +1,7 @@
+package android.view;
+
+/**
+ * JVM shadow of {@code android.view.Window}, only present for class resolution
+ */
+public abstract class Window {
+}
@@ -0,0 +1,11 @@
+package android.view;
+
+/**
+ * JVM shadow of {@code android.view.WindowManager}
+ */
+public interface WindowManager {
+    Display getDefaultDisplay();
+
+    class LayoutParams {
+    }
+}
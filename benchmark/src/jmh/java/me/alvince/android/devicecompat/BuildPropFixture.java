@@ -0,0 +1,68 @@
+package me.alvince.android.devicecompat;
+
+import android.os.Environment;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Realistic build.prop installed as root directory of {@link Environment} shadow
+ */
+final class BuildPropFixture {
+
+    private static final Charset CHARSET = Charset.forName("ISO-8859-1");
+
+    private BuildPropFixture() {
+    }
+
+    /**
+     * @return content of bundled build.prop
+     */
+    static byte[] read() throws IOException {
+        InputStream is = BuildPropFixture.class.getResourceAsStream("/build.prop");
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(8 * 1024);
+            byte[] buffer = new byte[4 * 1024];
+            int count;
+            while ((count = is.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            is.close();
+        }
+    }
+
+    /**
+     * @return content of bundled build.prop with one property replaced
+     */
+    static byte[] read(String key, String value) throws IOException {
+        String content = new String(read(), CHARSET);
+        return content.replaceAll("(?m)^" + key.replace(".", "\\.") + "=.*$", key + "=" + value).getBytes(CHARSET);
+    }
+
+    /**
+     * Write build.prop into a temp root directory used by {@link Environment#getRootDirectory()}
+     */
+    static void install(byte[] content) throws IOException {
+        File root = new File(System.getProperty("java.io.tmpdir"), "devicecompat-benchmark");
+        if (!root.isDirectory() && !root.mkdirs()) {
+            throw new IOException("Create benchmark root failed: " + root);
+        }
+        FileOutputStream os = new FileOutputStream(new File(root, "build.prop"));
+        try {
+            os.write(content);
+        } finally {
+            os.close();
+        }
+        System.setProperty(Environment.PROPERTY_ROOT_DIRECTORY, root.getPath());
+    }
+
+    static DeviceHelper.BuildProperties newProperties() {
+        return new DeviceHelper.BuildProperties(DeviceHelper.BUILD_PROPS_KEYS);
+    }
+}
@@ -0,0 +1,53 @@
+package me.alvince.android.devicecompat;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+/**
+ * Parsing of build.prop by {@link DeviceHelper.BuildProperties}, {@link Properties} as baseline
+ */
+@State(Scope.Benchmark)
+public class BuildPropertiesBenchmark {
+
+    private byte[] content;
+    private DeviceHelper.BuildProperties props;
+
+    @Setup
+    public void setup() throws IOException {
+        content = BuildPropFixture.read();
+        BuildPropFixture.install(content);
+        props = BuildPropFixture.newProperties();
+    }
+
+    /**
+     * First read on a fresh instance, SystemProperties is absent on JVM so build.prop is scanned
+     */
+    @Benchmark
+    public String loadFile() {
+        return BuildPropFixture.newProperties().getProperty(MiUiSysUtils.KEY_MIUI_VERSION_NAME);
+    }
+
+    @Benchmark
+    public DeviceHelper.BuildProperties scan() throws IOException {
+        props.load(new ByteArrayInputStream(content));
+        return props;
+    }
+
+    @Benchmark
+    public Properties scanBaseline() throws IOException {
+        Properties properties = new Properties();
+        properties.load(new ByteArrayInputStream(content));
+        return properties;
+    }
+
+    @Benchmark
+    public String getProperty() {
+        return props.getProperty(MiUiSysUtils.KEY_MIUI_VERSION_NAME);
+    }
+}
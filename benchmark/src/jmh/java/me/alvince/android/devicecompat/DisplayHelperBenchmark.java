@@ -0,0 +1,62 @@
+package me.alvince.android.devicecompat;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Point;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Dimension lookups of {@link DisplayHelper}
+ */
+@State(Scope.Benchmark)
+public class DisplayHelperBenchmark {
+
+    private Context context;
+    private final Point size = new Point();
+
+    @Setup
+    public void setup() {
+        context = new Context(new Resources());
+    }
+
+    @Benchmark
+    public int getStatusBarSize() {
+        return DisplayHelper.getStatusBarSize(context);
+    }
+
+    @Benchmark
+    public int getNavigationBarSize() {
+        return DisplayHelper.getNavigationBarSize(context);
+    }
+
+    @Benchmark
+    public ScreenMetrics getScreenMetrics() {
+        return DisplayHelper.getScreenMetrics(context);
+    }
+
+    @Benchmark
+    public float fromDip() {
+        return DisplayHelper.fromDip(context, 27);
+    }
+
+    @Benchmark
+    public Point obtainScreenSize() {
+        return DisplayHelper.obtainScreenSize(context);
+    }
+
+    @Benchmark
+    public Point obtainScreenSizeInto() {
+        DisplayHelper.obtainScreenSize(context, size);
+        return size;
+    }
+
+    @Benchmark
+    public Point obtainPhysicalScreenSize() {
+        DisplayHelper.obtainPhysicalScreenSize(context, size);
+        return size;
+    }
+}
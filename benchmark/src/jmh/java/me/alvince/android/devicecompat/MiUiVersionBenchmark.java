@@ -0,0 +1,43 @@
+package me.alvince.android.devicecompat;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+
+/**
+ * MIUI version parsing and incremental version comparison of {@link MiUiSysUtils} and {@link RomVersion}
+ */
+@State(Scope.Benchmark)
+public class MiUiVersionBenchmark {
+
+    @Param({"7.8.2", "V10.0.2.0.OEBCNFH"})
+    public String incremental;
+
+    private MiUiSysUtils utils;
+
+    @Setup
+    public void setup() throws IOException {
+        BuildPropFixture.install(BuildPropFixture.read(MiUiSysUtils.KEY_BUILD_VERSION_INCREMENTAL, incremental));
+        utils = new MiUiSysUtils(BuildPropFixture.newProperties());
+    }
+
+    @Benchmark
+    public int getMIUIVersion() {
+        return utils.getMIUIVersion();
+    }
+
+    @Benchmark
+    public boolean isSupportSysUiModeStandard() {
+        // below MIUI 9, incremental version is compared
+        return utils.isSupportSysUiModeStandard(8);
+    }
+
+    @Benchmark
+    public int parseIncremental() {
+        return RomVersion.parseStrict(incremental);
+    }
+}
@@ -0,0 +1,53 @@
+package me.alvince.android.devicecompat;
+
+import android.os.Build;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+
+/**
+ * Rom classification and cached {@link DeviceHelper#validateRom(String)} lookups
+ */
+@State(Scope.Benchmark)
+public class RomClassifierBenchmark {
+
+    private static final String[] ROMS = {
+            DeviceHelper.ROM_HUAWEI_EMUI,
+            DeviceHelper.ROM_XIAOMI_MIUI,
+            DeviceHelper.ROM_MEIZU_FLYME,
+            DeviceHelper.ROM_ONEPLUS,
+            DeviceHelper.ROM_OPPO,
+            DeviceHelper.ROM_VIVO
+    };
+
+    @Param({"Xiaomi", "HUAWEI", "OPPO", "google"})
+    public String brand;
+
+    private DeviceHelper.BuildProperties props;
+
+    @Setup
+    public void setup() throws IOException {
+        Build.BRAND = brand;
+        Build.MANUFACTURER = brand;
+        BuildPropFixture.install(BuildPropFixture.read());
+        props = BuildPropFixture.newProperties();
+    }
+
+    @Benchmark
+    public RomClassifier.Result classify() {
+        return RomClassifier.classify(props);
+    }
+
+    @Benchmark
+    public void validateRom(Blackhole blackhole) {
+        for (String rom : ROMS) {
+            blackhole.consume(DeviceHelper.validateRom(rom));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package me.alvince.android.devicecompat;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+import me.alvince.android.devicecompat.vendor.flyme.StatusbarColorUtils;
+
+/**
+ * Color luminance helpers of Flyme {@link StatusbarColorUtils}
+ */
+@State(Scope.Benchmark)
+public class StatusbarColorBenchmark {
+
+    private final int[] colors = new int[256];
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = 0xFF000000 | random.nextInt(0xFFFFFF);
+        }
+    }
+
+    @Benchmark
+    public int toGrey() {
+        int sum = 0;
+        for (int color : colors) {
+            sum += StatusbarColorUtils.toGrey(color);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int isBlackColor() {
+        int count = 0;
+        for (int color : colors) {
+            if (StatusbarColorUtils.isBlackColor(color, 50)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat.build;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+/**
+ * Generator of {@code R} and {@code BuildConfig} stand-ins of library module for plain JVM builds
+ * <p>
+ * Ids are read from {@code res/values/ids.xml} of library, so benchmark sources never drift from the resources.
+ * Values are arbitrary but unique, as Android plugin assigns them at build time anyway.
+ *
+ * @author alvince.zy@gmail.com
+ */
+public final class LibraryStubGenerator {
+
+    static final String PACKAGE = "me.alvince.android.devicecompat";
+
+    private static final int ID_BASE = 0x7f010000;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private LibraryStubGenerator() {
+    }
+
+    /**
+     * Generate {@code R.java} declaring every id of the values file
+     */
+    public static void generateR(File idsXml, File outputDir) throws IOException {
+        List<String> ids = parseIds(idsXml);
+        StringBuilder source = new StringBuilder();
+        source.append("package ").append(PACKAGE).append(";\n\n")
+                .append("/**\n * Stand-in of the R class generated by Android plugin for library module,")
+                .append(" generated from ").append(idsXml.getName()).append("\n */\n")
+                .append("public final class R {\n")
+                .append("    public static final class id {\n");
+        for (int i = 0; i < ids.size(); i++) {
+            source.append("        public static int ").append(ids.get(i))
+                    .append(" = 0x").append(Integer.toHexString(ID_BASE + i + 1)).append(";\n");
+        }
+        source.append("    }\n}\n");
+        write(outputDir, "R.java", source.toString());
+    }
+
+    /**
+     * Generate release {@code BuildConfig.java} of library
+     */
+    public static void generateBuildConfig(File outputDir, String versionName, int versionCode) throws IOException {
+        String source = "package " + PACKAGE + ";\n\n"
+                + "/**\n * Stand-in of the BuildConfig generated by Android plugin for library module\n */\n"
+                + "public final class BuildConfig {\n"
+                + "    public static final boolean DEBUG = false;\n"
+                + "    public static final String APPLICATION_ID = \"" + PACKAGE + "\";\n"
+                + "    public static final String BUILD_TYPE = \"release\";\n"
+                + "    public static final String FLAVOR = \"\";\n"
+                + "    public static final int VERSION_CODE = " + versionCode + ";\n"
+                + "    public static final String VERSION_NAME = \"" + versionName + "\";\n"
+                + "}\n";
+        write(outputDir, "BuildConfig.java", source);
+    }
+
+    static List<String> parseIds(File idsXml) throws IOException {
+        Document document;
+        try {
+            document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(idsXml);
+        } catch (Exception e) {
+            throw new IOException("Parse " + idsXml + " error", e);
+        }
+        List<String> ids = new ArrayList<>();
+        NodeList items = document.getDocumentElement().getChildNodes();
+        for (int i = 0; i < items.getLength(); i++) {
+            if (!(items.item(i) instanceof Element)) {
+                continue;
+            }
+            Element item = (Element) items.item(i);
+            boolean isId = "id".equals(item.getTagName())
+                    || ("item".equals(item.getTagName()) && "id".equals(item.getAttribute("type")));
+            if (isId) {
+                String name = item.getAttribute("name");
+                if (name.isEmpty()) {
+                    throw new IOException(idsXml.getName() + ": id without name");
+                }
+                ids.add(name);
+            }
+        }
+        return ids;
+    }
+
+    private static void write(File outputDir, String fileName, String source) throws IOException {
+        File dir = new File(outputDir, PACKAGE.replace('.', File.separatorChar));
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Create " + dir + " failed");
+        }
+        OutputStream os = new FileOutputStream(new File(dir, fileName));
+        try {
+            os.write(source.getBytes(UTF_8));
+        } finally {
+            os.close();
+        }
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat.build;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compiler of device quirk table into the binary asset read by {@code QuirkDatabase}
+ * <p>
+ * Source is a line based text table, each line holds a key and its quirks:
+ * <pre>
+ *     # comment
+ *     device:OnePlus6    notch  notch_height=status_bar
+ *     brand:vivo         notch_height=27dp
+ * </pre>
+ * Keys are indexed by a minimal perfect hash (hash and displace), hashing must stay in sync with runtime.
+ *
+ * @author alvince.zy@gmail.com
+ */
+public final class QuirkCompiler {
+
+    static final int MAGIC = 0x4443514B;  // DCQK
+    static final int FORMAT_VERSION = 1;
+
+    static final int FLAG_NOTCH = 1;
+    static final int FLAG_NO_NOTCH = 1 << 1;
+    static final int FLAG_NOTCH_HEIGHT_PX = 1 << 2;
+    static final int FLAG_NOTCH_HEIGHT_DP = 1 << 3;
+    static final int FLAG_NOTCH_HEIGHT_STATUS_BAR = 1 << 4;
+
+    private static final String[] KEY_TYPES = {"device", "model", "manufacturer", "brand"};
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    private static final int FNV_OFFSET = 0x811C9DC5;
+    private static final int FNV_PRIME = 0x01000193;
+    private static final int KEYS_PER_BUCKET = 4;
+    private static final int MAX_SEED = 1 << 20;
+
+    private QuirkCompiler() {
+    }
+
+    /**
+     * Compile text table into binary asset
+     */
+    public static void compile(File source, File output) throws IOException {
+        Map<String, int[]> records = parse(source);
+        File dir = output.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        OutputStream os = new FileOutputStream(output);
+        try {
+            os.write(write(records));
+        } finally {
+            os.close();
+        }
+    }
+
+    static Map<String, int[]> parse(File source) throws IOException {
+        Map<String, int[]> records = new LinkedHashMap<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(source), "UTF-8"));
+        try {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                int comment = line.indexOf('#');
+                if (comment >= 0) {
+                    line = line.substring(0, comment);
+                }
+                String[] tokens = line.trim().split("\\s+");
+                if (tokens.length == 0 || tokens[0].isEmpty()) {
+                    continue;
+                }
+                String key = normalizeKey(tokens[0], source, lineNumber);
+                if (records.containsKey(key)) {
+                    throw error(source, lineNumber, "duplicate key " + tokens[0]);
+                }
+                int[] record = new int[2];  // [ flags, notch height ]
+                for (int i = 1; i < tokens.length; i++) {
+                    parseQuirk(tokens[i], record, source, lineNumber);
+                }
+                records.put(key, record);
+            }
+        } finally {
+            reader.close();
+        }
+        return records;
+    }
+
+    static byte[] write(Map<String, int[]> records) throws IOException {
+        List<String> keys = new ArrayList<>(records.keySet());
+        int count = keys.size();
+        int bucketCount = Math.max(1, (count + KEYS_PER_BUCKET - 1) / KEYS_PER_BUCKET);
+        int[] seeds = new int[bucketCount];
+        int[] slots = new int[count];  // slot -> key index
+        Arrays.fill(slots, -1);
+        displace(keys, bucketCount, seeds, slots);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(count);
+        out.writeInt(bucketCount);
+        for (int seed : seeds) {
+            out.writeInt(seed);
+        }
+        int recordsOffset = 16 + 4 * bucketCount + 4 * count;
+        int[] offsets = new int[count];
+        int offset = recordsOffset;
+        for (int i = 0; i < count; i++) {
+            offsets[i] = offset;
+            offset += 2 + keys.get(i).length() + 8;
+        }
+        for (int slot = 0; slot < count; slot++) {
+            out.writeInt(offsets[slots[slot]]);
+        }
+        for (String key : keys) {
+            int[] record = records.get(key);
+            byte[] keyBytes = key.getBytes(ASCII);
+            out.writeShort(keyBytes.length);
+            out.write(keyBytes);
+            out.writeInt(record[0]);
+            out.writeInt(record[1]);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Seeded FNV-1a of lower-cased ascii key, finalized by murmur3 mix so that low bits depend on seed
+     */
+    static int hash(String key, int seed) {
+        int h = FNV_OFFSET ^ seed;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= FNV_PRIME;
+        }
+        return mix(h);
+    }
+
+    static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h & 0x7FFFFFFF;
+    }
+
+    private static void displace(List<String> keys, int bucketCount, int[] seeds, int[] slots) {
+        int count = keys.size();
+        List<List<Integer>> buckets = new ArrayList<>(bucketCount);
+        for (int i = 0; i < bucketCount; i++) {
+            buckets.add(new ArrayList<Integer>());
+        }
+        for (int i = 0; i < count; i++) {
+            buckets.get(hash(keys.get(i), 0) % bucketCount).add(i);
+        }
+        Integer[] order = new Integer[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            order[i] = i;
+        }
+        final List<List<Integer>> sizes = buckets;
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return sizes.get(b).size() - sizes.get(a).size();
+            }
+        });
+        int[] candidate = new int[KEYS_PER_BUCKET * 8];
+        for (Integer b : order) {
+            List<Integer> bucket = buckets.get(b);
+            if (bucket.isEmpty()) {
+                continue;
+            }
+            if (candidate.length < bucket.size()) {
+                candidate = new int[bucket.size()];
+            }
+            int seed = 1;
+            while (!fits(keys, bucket, seed, slots, candidate)) {
+                if (++seed > MAX_SEED) {
+                    throw new IllegalStateException("No perfect hash seed for bucket " + b);
+                }
+            }
+            seeds[b] = seed;
+            for (int i = 0; i < bucket.size(); i++) {
+                slots[candidate[i]] = bucket.get(i);
+            }
+        }
+    }
+
+    private static boolean fits(List<String> keys, List<Integer> bucket, int seed, int[] slots, int[] candidate) {
+        for (int i = 0; i < bucket.size(); i++) {
+            int slot = hash(keys.get(bucket.get(i)), seed) % slots.length;
+            if (slots[slot] >= 0) {
+                return false;
+            }
+            for (int j = 0; j < i; j++) {
+                if (candidate[j] == slot) {
+                    return false;
+                }
+            }
+            candidate[i] = slot;
+        }
+        return true;
+    }
+
+    private static String normalizeKey(String token, File source, int lineNumber) throws IOException {
+        int separator = token.indexOf(':');
+        if (separator <= 0 || separator == token.length() - 1) {
+            throw error(source, lineNumber, "key must be <type>:<value>, got " + token);
+        }
+        String type = token.substring(0, separator).toLowerCase(Locale.ROOT);
+        if (!Arrays.asList(KEY_TYPES).contains(type)) {
+            throw error(source, lineNumber, "unknown key type " + type);
+        }
+        String value = token.substring(separator + 1);
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0x7F) {
+                throw error(source, lineNumber, "key must be ascii, got " + token);
+            }
+        }
+        return type + ':' + value.toLowerCase(Locale.ROOT);
+    }
+
+    private static void parseQuirk(String token, int[] record, File source, int lineNumber) throws IOException {
+        if (token.startsWith("notch_height=")
+                && (record[0] & (FLAG_NOTCH_HEIGHT_PX | FLAG_NOTCH_HEIGHT_DP | FLAG_NOTCH_HEIGHT_STATUS_BAR)) != 0) {
+            throw error(source, lineNumber, "notch_height defined more than once");
+        }
+        if ("notch".equals(token)) {
+            record[0] |= FLAG_NOTCH;
+        } else if ("no_notch".equals(token)) {
+            record[0] |= FLAG_NO_NOTCH;
+        } else if ("notch_height=status_bar".equals(token)) {
+            record[0] |= FLAG_NOTCH_HEIGHT_STATUS_BAR;
+        } else if (token.startsWith("notch_height=") && (token.endsWith("px") || token.endsWith("dp"))) {
+            String value = token.substring("notch_height=".length(), token.length() - 2);
+            try {
+                record[1] = Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw error(source, lineNumber, "invalid notch height " + value);
+            }
+            record[0] |= token.endsWith("px") ? FLAG_NOTCH_HEIGHT_PX : FLAG_NOTCH_HEIGHT_DP;
+        } else {
+            throw error(source, lineNumber, "unknown quirk " + token);
+        }
+        if ((record[0] & FLAG_NOTCH) != 0 && (record[0] & FLAG_NO_NOTCH) != 0) {
+            throw error(source, lineNumber, "notch and no_notch are exclusive");
+        }
+    }
+
+    private static IOException error(File source, int lineNumber, String message) {
+        return new IOException(source.getName() + ":" + lineNumber + ": " + message);
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat.compiler;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.TreeMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates vendor index of classes annotated by {@code @DeviceVendor}
+ * <p>
+ * Index maps rom to vendor class by {@code switch} on string constants, so only the matched vendor class is
+ * loaded at runtime. One index is generated per module, named by processor option {@value #OPTION_VENDOR_INDEX}
+ * or {@code <package of vendors>.DeviceCompatVendorIndex} by default, the option is required once vendors
+ * span several packages.
+ *
+ * @author alvince.zy@gmail.com
+ */
+public class DeviceVendorProcessor extends AbstractProcessor {
+
+    static final String OPTION_VENDOR_INDEX = "deviceCompat.vendorIndex";
+
+    private static final String PACKAGE = "me.alvince.android.devicecompat";
+    private static final String ANNOTATION_DEVICE_VENDOR = PACKAGE + ".DeviceVendor";
+    private static final String CLASS_DEVICE_COMPAT_STUB = PACKAGE + ".DeviceCompatStub";
+    private static final String CLASS_VENDOR_INDEX = PACKAGE + ".VendorIndex";
+    private static final String DEFAULT_INDEX_NAME = "DeviceCompatVendorIndex";
+
+    private Elements elements;
+    private Types types;
+    private Messager messager;
+    private boolean generated;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        elements = processingEnv.getElementUtils();
+        types = processingEnv.getTypeUtils();
+        messager = processingEnv.getMessager();
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(ANNOTATION_DEVICE_VENDOR);
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+        return Collections.singleton(OPTION_VENDOR_INDEX);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement annotation = elements.getTypeElement(ANNOTATION_DEVICE_VENDOR);
+        if (annotation == null || generated) {
+            return false;
+        }
+        Set<? extends Element> annotated = roundEnv.getElementsAnnotatedWith(annotation);
+        if (annotated.isEmpty()) {
+            return false;
+        }
+        TypeElement stub = elements.getTypeElement(CLASS_DEVICE_COMPAT_STUB);
+        if (stub == null) {
+            messager.printMessage(Diagnostic.Kind.ERROR, CLASS_DEVICE_COMPAT_STUB + " not found on classpath");
+            return true;
+        }
+
+        String indexName = processingEnv.getOptions().get(OPTION_VENDOR_INDEX);
+        String vendorPackage = null;
+        Map<String, Vendor> vendors = new TreeMap<>();
+        boolean valid = true;
+        for (Element element : annotated) {
+            Vendor vendor = parse(element, annotation, stub);
+            if (vendor == null) {
+                valid = false;
+                continue;
+            }
+            if (vendorPackage == null) {
+                vendorPackage = packageOf(vendor.type);
+            } else if (!vendorPackage.equals(packageOf(vendor.type)) && indexName == null) {
+                // default index package would depend on element order
+                error(element, "Vendors declared in packages " + vendorPackage + " and " + packageOf(vendor.type)
+                        + ", set processor option " + OPTION_VENDOR_INDEX + " to name the index");
+                valid = false;
+            }
+            Vendor exists = vendors.get(vendor.rom);
+            if (exists == null || exists.priority < vendor.priority) {
+                vendors.put(vendor.rom, vendor);
+            } else if (exists.priority == vendor.priority) {
+                error(element, "Duplicate vendor of rom \"" + vendor.rom + "\" with priority " + vendor.priority
+                        + ", already declared by " + exists.type.getQualifiedName());
+                valid = false;
+            }
+        }
+        if (!valid) {
+            return true;
+        }
+        if (indexName == null) {
+            indexName = vendorPackage + "." + DEFAULT_INDEX_NAME;
+        }
+        String indexPackage = indexName.lastIndexOf('.') > 0 ? indexName.substring(0, indexName.lastIndexOf('.')) : "";
+        for (Vendor vendor : vendors.values()) {
+            if (!isAccessible(vendor, indexPackage)) {
+                error(vendor.type, "Vendor must be public with public constructor to be indexed by " + indexName
+                        + ", or set processor option " + OPTION_VENDOR_INDEX + " into its package");
+                valid = false;
+            }
+        }
+        if (valid) {
+            write(indexName, indexPackage, vendors);
+        }
+        generated = true;
+        return true;
+    }
+
+    private Vendor parse(Element element, TypeElement annotation, TypeElement stub) {
+        if (element.getKind() != ElementKind.CLASS) {
+            error(element, "@DeviceVendor is only applicable to classes");
+            return null;
+        }
+        TypeElement type = (TypeElement) element;
+        if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+            error(element, "Vendor must not be abstract");
+            return null;
+        }
+        if (type.getNestingKind() != NestingKind.TOP_LEVEL
+                && (type.getNestingKind() != NestingKind.MEMBER || !type.getModifiers().contains(Modifier.STATIC))) {
+            error(element, "Vendor must be a top level or static nested class");
+            return null;
+        }
+        if (!types.isSubtype(type.asType(), stub.asType())) {
+            error(element, "Vendor must extend " + CLASS_DEVICE_COMPAT_STUB);
+            return null;
+        }
+        ExecutableElement constructor = null;
+        for (ExecutableElement candidate : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (candidate.getParameters().isEmpty()) {
+                constructor = candidate;
+            }
+        }
+        if (constructor == null || constructor.getModifiers().contains(Modifier.PRIVATE)) {
+            error(element, "Vendor requires a non-private constructor without parameters");
+            return null;
+        }
+
+        String rom = null;
+        int priority = 0;
+        for (AnnotationMirror mirror : type.getAnnotationMirrors()) {
+            if (!types.isSameType(mirror.getAnnotationType(), annotation.asType())) {
+                continue;
+            }
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                    : elements.getElementValuesWithDefaults(mirror).entrySet()) {
+                String name = entry.getKey().getSimpleName().toString();
+                if ("rom".equals(name)) {
+                    rom = String.valueOf(entry.getValue().getValue());
+                } else if ("priority".equals(name)) {
+                    priority = (Integer) entry.getValue().getValue();
+                }
+            }
+        }
+        if (rom == null || rom.isEmpty()) {
+            error(element, "@DeviceVendor rom must not be empty");
+            return null;
+        }
+        return new Vendor(type, constructor, rom, priority);
+    }
+
+    private boolean isAccessible(Vendor vendor, String indexPackage) {
+        if (packageOf(vendor.type).equals(indexPackage)) {
+            return true;
+        }
+        if (!vendor.constructor.getModifiers().contains(Modifier.PUBLIC)) {
+            return false;
+        }
+        for (Element e = vendor.type; e instanceof TypeElement; e = e.getEnclosingElement()) {
+            if (!e.getModifiers().contains(Modifier.PUBLIC)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void write(String indexName, String indexPackage, Map<String, Vendor> vendors) {
+        String simpleName = indexName.substring(indexName.lastIndexOf('.') + 1);
+        StringBuilder source = new StringBuilder();
+        source.append("// Generated by ").append(getClass().getSimpleName()).append(", do not edit.\n");
+        if (!indexPackage.isEmpty()) {
+            source.append("package ").append(indexPackage).append(";\n\n");
+        }
+        source.append("public final class ").append(simpleName)
+                .append(" implements ").append(CLASS_VENDOR_INDEX).append(" {\n\n");
+
+        source.append("    @Override\n")
+                .append("    public int priority(String rom) {\n")
+                .append("        switch (rom) {\n");
+        for (Vendor vendor : vendors.values()) {
+            source.append("            case ").append(elements.getConstantExpression(vendor.rom)).append(":\n")
+                    .append("                return ").append(vendor.priority).append(";\n");
+        }
+        source.append("            default:\n")
+                .append("                return NO_VENDOR;\n")
+                .append("        }\n")
+                .append("    }\n\n");
+
+        source.append("    @Override\n")
+                .append("    public ").append(CLASS_DEVICE_COMPAT_STUB).append(" create(String rom) {\n")
+                .append("        switch (rom) {\n");
+        for (Vendor vendor : vendors.values()) {
+            source.append("            case ").append(elements.getConstantExpression(vendor.rom)).append(":\n")
+                    .append("                return new ").append(vendor.type.getQualifiedName()).append("();\n");
+        }
+        source.append("            default:\n")
+                .append("                return null;\n")
+                .append("        }\n")
+                .append("    }\n")
+                .append("}\n");
+
+        Element[] origins = new Element[vendors.size()];
+        int i = 0;
+        for (Vendor vendor : vendors.values()) {
+            origins[i++] = vendor.type;
+        }
+        Writer writer = null;
+        try {
+            writer = processingEnv.getFiler().createSourceFile(indexName, origins).openWriter();
+            writer.write(source.toString());
+        } catch (IOException e) {
+            messager.printMessage(Diagnostic.Kind.ERROR, "Write vendor index " + indexName + " error: " + e);
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private String packageOf(TypeElement type) {
+        return elements.getPackageOf(type).getQualifiedName().toString();
+    }
+
+    private void error(Element element, String message) {
+        messager.printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private static final class Vendor {
+        final TypeElement type;
+        final ExecutableElement constructor;
+        final String rom;
+        final int priority;
+
+        Vendor(TypeElement type, ExecutableElement constructor, String rom, int priority) {
+            this.type = type;
+            this.constructor = constructor;
+            this.rom = rom;
+            this.priority = priority;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.Settings;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Cached system brightness kept current by a {@link ContentObserver}
+ * <p>
+ * Once started, {@link DisplayHelper#getScreenBrightness(Context)} and {@link DisplayHelper#isAutoBrightness(Context)}
+ * read the cached values instead of querying settings provider on every call.
+ * <p>
+ * Observer is shared by the process and reference-counted, every {@link #start(Context)} is balanced by one
+ * {@link #stop()} and observing ends with the last one. Subscribers remove their own listeners.
+ * <pre>
+ *     BrightnessObserver observer = BrightnessObserver.start(context);
+ *     observer.addOnBrightnessChangedListener(listener);
+ *     ...
+ *     observer.removeOnBrightnessChangedListener(listener);
+ *     BrightnessObserver.stop();
+ * </pre>
+ *
+ * @author alvince.zy@gmail.com
+ */
+public final class BrightnessObserver {
+
+    public interface OnBrightnessChangedListener {
+        /**
+         * Called on main thread when system brightness or its mode changes
+         *
+         * @param brightness 0~255
+         * @param automatic  if auto brightness enabled
+         */
+        void onBrightnessChanged(int brightness, boolean automatic);
+    }
+
+    static final int BRIGHTNESS_DEFAULT = 255 / 2;
+
+    private static final Object S_LOCK = BrightnessObserver.class;
+    private static volatile BrightnessObserver instance;
+
+    private final ContentResolver resolver;
+    private final ContentObserver observer;
+    private final CopyOnWriteArrayList<OnBrightnessChangedListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Unbalanced {@link #start(Context)} calls, guarded by {@link #S_LOCK}
+     */
+    private int starts;
+
+    private volatile int brightness;
+    private volatile boolean automatic;
+
+    private BrightnessObserver(Context context) {
+        this.resolver = context.getContentResolver();
+        this.observer = new ContentObserver(new Handler(Looper.getMainLooper())) {
+            @Override
+            public void onChange(boolean selfChange) {
+                if (update()) {
+                    notifyChanged();
+                }
+            }
+        };
+        update();
+        resolver.registerContentObserver(Settings.System.getUriFor(Settings.System.SCREEN_BRIGHTNESS), false, observer);
+        resolver.registerContentObserver(Settings.System.getUriFor(Settings.System.SCREEN_BRIGHTNESS_MODE), false, observer);
+    }
+
+    /**
+     * Start observing system brightness, the running observer is returned on repeated calls.
+     */
+    @NonNull
+    public static BrightnessObserver start(@NonNull Context context) {
+        synchronized (S_LOCK) {
+            BrightnessObserver observer = instance;
+            if (observer == null) {
+                observer = new BrightnessObserver(context.getApplicationContext());
+                instance = observer;
+            }
+            observer.starts++;
+            return observer;
+        }
+    }
+
+    /**
+     * Release one {@link #start(Context)}, observing stops with the last one:
+     * remaining listeners are dropped and settings are queried directly again.
+     */
+    public static void stop() {
+        BrightnessObserver observer;
+        synchronized (S_LOCK) {
+            observer = instance;
+            if (observer == null || --observer.starts > 0) {
+                return;
+            }
+            instance = null;
+        }
+        observer.resolver.unregisterContentObserver(observer.observer);
+        observer.listeners.clear();
+    }
+
+    /**
+     * @return running observer, {@code null} if not started
+     */
+    @Nullable
+    static BrightnessObserver peek() {
+        return instance;
+    }
+
+    /**
+     * 系统屏幕亮度
+     *
+     * @return 0~255
+     */
+    public int getBrightness() {
+        return brightness;
+    }
+
+    /**
+     * 是否自动亮度
+     */
+    public boolean isAutomatic() {
+        return automatic;
+    }
+
+    @MainThread
+    public void addOnBrightnessChangedListener(@NonNull OnBrightnessChangedListener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    @MainThread
+    public void removeOnBrightnessChangedListener(@NonNull OnBrightnessChangedListener listener) {
+        listeners.remove(listener);
+    }
+
+    static int queryBrightness(ContentResolver resolver) {
+        return Settings.System.getInt(resolver, Settings.System.SCREEN_BRIGHTNESS, BRIGHTNESS_DEFAULT);
+    }
+
+    static boolean queryAutomatic(ContentResolver resolver) {
+        return Settings.System.getInt(resolver, Settings.System.SCREEN_BRIGHTNESS_MODE,
+                Settings.System.SCREEN_BRIGHTNESS_MODE_MANUAL) == Settings.System.SCREEN_BRIGHTNESS_MODE_AUTOMATIC;
+    }
+
+    /**
+     * @return if any value changed
+     */
+    private boolean update() {
+        int brightness = queryBrightness(resolver);
+        boolean automatic = queryAutomatic(resolver);
+        boolean changed = brightness != this.brightness || automatic != this.automatic;
+        this.brightness = brightness;
+        this.automatic = automatic;
+        return changed;
+    }
+
+    private void notifyChanged() {
+        for (OnBrightnessChangedListener listener : listeners) {
+            listener.onBrightnessChanged(brightness, automatic);
+        }
+    }
+}
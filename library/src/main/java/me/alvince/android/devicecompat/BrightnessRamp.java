@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.animation.TimeInterpolator;
+import android.annotation.TargetApi;
+import android.app.Activity;
+import android.app.Application;
+import android.app.Application.ActivityLifecycleCallbacks;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.support.annotation.IntRange;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.Choreographer;
+import android.view.View;
+import android.view.Window;
+
+/**
+ * Animate window brightness towards a target
+ * <p>
+ * Brightness is stepped once per frame, frames whose quantized value (0~255) is unchanged skip the window update.
+ * A running ramp of the same window is cancelled by a new one, and ramps end with the activity destroyed.
+ * <pre>
+ *     BrightnessRamp.start(activity, 200, 300L, new DecelerateInterpolator());
+ * </pre>
+ *
+ * @author alvince.zy@gmail.com
+ */
+@MainThread
+public final class BrightnessRamp {
+
+    private static final long FRAME_DELAY_MILLIS = 16L;
+
+    private final Activity activity;
+    private final Window window;
+    private final int from;
+    private final int to;
+    private final boolean followSystem;
+    private final long durationNanos;
+    private final TimeInterpolator interpolator;
+    private final Runnable frameAction = new Runnable() {
+        @Override
+        public void run() {
+            doFrame(SystemClock.uptimeMillis() * 1000000L);
+        }
+    };
+    private final ActivityLifecycleCallbacks lifecycleCallbacks = new ActivityLifecycleCallbacks() {
+        @Override
+        public void onActivityDestroyed(Activity activity) {
+            if (activity == BrightnessRamp.this.activity) {
+                cancel();
+            }
+        }
+
+        @Override
+        public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+        }
+
+        @Override
+        public void onActivityStarted(Activity activity) {
+        }
+
+        @Override
+        public void onActivityResumed(Activity activity) {
+        }
+
+        @Override
+        public void onActivityPaused(Activity activity) {
+        }
+
+        @Override
+        public void onActivityStopped(Activity activity) {
+        }
+
+        @Override
+        public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+        }
+    };
+    private Object frameCallback;
+
+    private long startNanos = -1L;
+    private int lastValue;
+    private boolean running;
+
+    private BrightnessRamp(Activity activity, int from, int to, boolean followSystem,
+                           long durationMillis, TimeInterpolator interpolator) {
+        this.activity = activity;
+        this.window = activity.getWindow();
+        this.from = from;
+        this.to = to;
+        this.followSystem = followSystem;
+        this.durationNanos = Math.max(durationMillis, 0L) * 1000000L;
+        this.interpolator = interpolator;
+        this.lastValue = from;
+    }
+
+    /**
+     * Start ramp from current window brightness, brightness pending in {@link SystemUiTransaction} included
+     *
+     * @param brightness   target brightness 0~255, non-positive value to ramp to system brightness then follow system
+     * @param interpolator {@code null} for linear
+     */
+    @NonNull
+    public static BrightnessRamp start(@NonNull Activity activity, @IntRange(to = 255) int brightness,
+                                       long durationMillis, @Nullable TimeInterpolator interpolator) {
+        // pending value of updateBrightness() applied on next frame
+        int from = DisplayHelper.getScreenBrightness(activity);
+        int system = DisplayHelper.getScreenBrightness(activity.getApplicationContext());
+        if (from < 0) {
+            from = system;
+        }
+        boolean followSystem = brightness <= 0;
+        int to = followSystem ? system : Math.min(brightness, 255);
+
+        View decorView = activity.getWindow().getDecorView();
+        Object running = decorView.getTag(R.id.devicecompat_brightness_ramp);
+        if (running instanceof BrightnessRamp) {
+            ((BrightnessRamp) running).cancel();
+        }
+        BrightnessRamp ramp = new BrightnessRamp(activity, from, to, followSystem, durationMillis, interpolator);
+        decorView.setTag(R.id.devicecompat_brightness_ramp, ramp);
+        ramp.begin();
+        return ramp;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Stop at current brightness
+     */
+    public void cancel() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            removeFrameCallback();
+        } else {
+            window.getDecorView().removeCallbacks(frameAction);
+        }
+        release();
+    }
+
+    private void begin() {
+        running = true;
+        activity.getApplication().registerActivityLifecycleCallbacks(lifecycleCallbacks);
+        scheduleFrame();
+    }
+
+    private void doFrame(long frameTimeNanos) {
+        if (!running) {
+            return;
+        }
+        if (startNanos < 0) {
+            startNanos = frameTimeNanos;
+        }
+        float fraction = durationNanos > 0 ? Math.min((frameTimeNanos - startNanos) / (float) durationNanos, 1F) : 1F;
+        float interpolated = interpolator != null ? interpolator.getInterpolation(fraction) : fraction;
+        int value = Math.round(from + (to - from) * interpolated);
+        if (value != lastValue) {
+            lastValue = value;
+            apply(value);
+        }
+        if (fraction < 1F) {
+            scheduleFrame();
+        } else {
+            running = false;
+            if (followSystem) {
+                apply(0);
+            } else if (lastValue != to) {
+                apply(to);
+            }
+            release();
+        }
+    }
+
+    private void apply(int value) {
+        SystemUiTransaction.of(window)
+                .setBrightness(value)
+                .commitNow();
+    }
+
+    private void release() {
+        activity.getApplication().unregisterActivityLifecycleCallbacks(lifecycleCallbacks);
+        View decorView = window.getDecorView();
+        if (decorView.getTag(R.id.devicecompat_brightness_ramp) == this) {
+            decorView.setTag(R.id.devicecompat_brightness_ramp, null);
+        }
+    }
+
+    private void scheduleFrame() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            postFrameCallback();
+        } else {
+            window.getDecorView().postDelayed(frameAction, FRAME_DELAY_MILLIS);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void postFrameCallback() {
+        if (frameCallback == null) {
+            frameCallback = new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    BrightnessRamp.this.doFrame(frameTimeNanos);
+                }
+            };
+        }
+        Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) frameCallback);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void removeFrameCallback() {
+        if (frameCallback != null) {
+            Choreographer.getInstance().removeFrameCallback((Choreographer.FrameCallback) frameCallback);
+        }
+    }
+}
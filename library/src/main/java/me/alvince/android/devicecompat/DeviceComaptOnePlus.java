@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.content.Context;
+import android.os.Build;
+import android.support.annotation.NonNull;
+
+/**
+ * OnePlus 手机兼容适配
+ * <p>
+ * Notch devices are declared in quirk table, checks below are kept as fallback
+ */
+@DeviceVendor(rom = DeviceHelper.ROM_ONEPLUS)
+class DeviceComaptOnePlus extends DeviceCompatStub {
+    DeviceComaptOnePlus() {
+        super(DeviceHelper.ROM_ONEPLUS);
+    }
+
+    @Override
+    protected boolean detectNotchInScreen(@NonNull Context context) {
+        return "OnePlus6".equals(Build.DEVICE);
+    }
+
+    @Override
+    protected float detectScreenNotchHeight(@NonNull Context context) {
+        return DisplayHelper.getStatusBarSize(context);
+    }
+}
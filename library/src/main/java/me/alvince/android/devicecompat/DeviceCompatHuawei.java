@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+
+import java.lang.reflect.Method;
+
+import me.alvince.android.devicecompat.ReflectionRegistry.MethodRef;
+
+/**
+ * 华为手机兼容适配
+ * <p>
+ * &gt;&nbsp;<a href="http://developer.huawei.com/consumer/cn/devservice/doc/50114">刘海屏手机安卓O版本适配指导</a>
+ */
+@DeviceVendor(rom = DeviceHelper.ROM_HUAWEI_EMUI)
+class DeviceCompatHuawei extends DeviceCompatStub {
+    private static final String TAG = "DeviceCompatHuawei";
+
+    private static final String CLASS_NOTCH_SIZE_UTIL = "com.huawei.android.util.HwNotchSizeUtil";
+    private static final MethodRef HAS_NOTCH_IN_SCREEN = new MethodRef(CLASS_NOTCH_SIZE_UTIL, "hasNotchInScreen");
+    private static final MethodRef GET_NOTCH_SIZE = new MethodRef(CLASS_NOTCH_SIZE_UTIL, "getNotchSize");
+
+    DeviceCompatHuawei() {
+        super(DeviceHelper.ROM_HUAWEI_EMUI);
+    }
+
+    @Override
+    protected boolean detectNotchInScreen(@NonNull Context context) {
+        Method get = HAS_NOTCH_IN_SCREEN.get();
+        if (get != null) {
+            try {
+                return (boolean) get.invoke(null);
+            } catch (Exception e) {
+                L.e(TAG, "hasNotchInScreen Exception", e);
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected float detectScreenNotchHeight(@NonNull Context context) {
+        Method get = GET_NOTCH_SIZE.get();
+        if (get != null) {
+            int[] ret;  // [ width, height ]
+            try {
+                ret = (int[]) get.invoke(null);
+                return ret[1];
+            } catch (Exception e) {
+                L.e(TAG, "getNotchSize Exception", e);
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Instrumentation of device detection, registered by {@link DeviceHelper#setMetrics(DeviceCompatMetrics)}
+ * <p>
+ * Reported in release builds as well, callbacks run synchronously on the detecting thread
+ * so implementations should only record values. Without a registered listener the cost is one volatile read.
+ *
+ * @author alvince.zy@gmail.com
+ */
+public interface DeviceCompatMetrics {
+
+    /**
+     * Restore of persistent device profile, see {@link DeviceHelper#init(android.content.Context)}
+     */
+    String PHASE_PROFILE_RESTORE = "profile_restore";
+    /**
+     * Lookup of {@code qemu.hw.mainkeys} navigation bar override
+     */
+    String PHASE_NAV_BAR_OVERRIDE = "nav_bar_override";
+    /**
+     * Resolve of system property source, detail is one of {@code system_properties}, {@code build_prop},
+     * {@code build_get_string} and {@code none}
+     */
+    String PHASE_PROPERTY_SOURCE = "property_source";
+    /**
+     * Scan of {@code /system/build.prop}
+     */
+    String PHASE_BUILD_PROPS_LOAD = "build_props_load";
+    String PHASE_ROM_CLASSIFY = "rom_classify";
+    /**
+     * Vendor notch probe, detail is the matched rom
+     */
+    String PHASE_NOTCH_PROBE = "notch_probe";
+    /**
+     * Vendor notch height probe, detail is the matched rom
+     */
+    String PHASE_NOTCH_HEIGHT_PROBE = "notch_height_probe";
+
+    /**
+     * build.prop not readable, source falls back to {@code Build.getString} reflection, detail is the key
+     */
+    String FALLBACK_BUILD_PROPS_LOAD_FAILED = "build_props_load_failed";
+    /**
+     * Property not registered for build.prop scan, read by {@code Build.getString} reflection, detail is the key
+     */
+    String FALLBACK_BUILD_PROPS_UNREGISTERED = "build_props_unregistered";
+    /**
+     * {@code config_showNavigationBar} missing, checked by {@code ViewConfiguration.hasPermanentMenuKey}
+     */
+    String FALLBACK_PERMANENT_MENU_KEY = "permanent_menu_key";
+    /**
+     * Main thread stopped waiting for running prewarm and detected by itself, detail is the queried api
+     */
+    String FALLBACK_PREWARM_TIMEOUT = "prewarm_timeout";
+
+    /**
+     * Detection phase finished
+     *
+     * @param phase  one of {@code PHASE_*}
+     * @param detail e.g. matched rom of vendor probes, empty if none
+     */
+    void onPhase(@NonNull String phase, @NonNull String detail, long durationNanos);
+
+    /**
+     * Reflection handle queried through {@link ReflectionRegistry}
+     *
+     * @param className class looked up
+     * @param member    method or field name, {@code null} for class lookup
+     * @param cached    {@code true} if served from cache, {@code false} if resolved by reflection
+     * @param found     if the class or member exists
+     */
+    void onReflection(@NonNull String className, @Nullable String member, boolean cached, boolean found);
+
+    /**
+     * Slower fallback path taken
+     *
+     * @param fallback one of {@code FALLBACK_*}
+     * @param detail   e.g. property key, empty if none
+     */
+    void onFallback(@NonNull String fallback, @NonNull String detail);
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+
+/**
+ * OPPO 手机兼容适配
+ * <p>
+ * &gt;&nbsp;<a href="https://open.oppomobile.com/wiki/doc#id=10159">OPPO 凹形屏适配说明</a>
+ */
+@DeviceVendor(rom = DeviceHelper.ROM_OPPO)
+class DeviceCompatOppo extends DeviceCompatStub {
+    DeviceCompatOppo() {
+        super(DeviceHelper.ROM_OPPO);
+    }
+
+    @Override
+    protected boolean detectNotchInScreen(@NonNull Context context) {
+        return context.getPackageManager()
+                .hasSystemFeature("com.oppo.feature.screen.heteromorphism");
+    }
+
+    @Override
+    protected float detectScreenNotchHeight(@NonNull Context context) {
+        // see > https://open.oppomobile.com/wiki/doc#id=10159
+        return 80F;
+    }
+}
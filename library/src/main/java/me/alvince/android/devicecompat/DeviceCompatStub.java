@@ -29,17 +29,29 @@ import android.support.annotation.NonNull;
 
 /**
  * Created by alvince on 2018/7/27
+ * <p>
+ * Base of vendor implementations, extend and annotate with {@link DeviceVendor} to contribute a vendor.
  *
  * @author alvince.zy@gmail.com
  */
-class DeviceCompatStub implements DeviceHelper.DeviceCompat {
+public class DeviceCompatStub implements DeviceHelper.DeviceCompat {
 
     private static final String TAG = "DeviceCompatStub";
 
-    boolean hasScreenNotch = false;
-    float screenNotchHeight = 0;
+    private static final int NOTCH_UNKNOWN = -1;
+    private static final int NOTCH_ABSENT = 0;
+    private static final int NOTCH_PRESENT = 1;
 
-    DeviceCompatStub() {
+    /**
+     * Matched rom, empty for generic devices
+     */
+    final String rom;
+
+    private volatile int notchState = NOTCH_UNKNOWN;
+    private volatile float notchHeight = -1F;
+
+    protected DeviceCompatStub(@NonNull String rom) {
+        this.rom = rom;
         L.d(TAG, "Device Compat IMPL => " + getClass().getSimpleName());
     }
 
@@ -50,12 +62,75 @@ class DeviceCompatStub implements DeviceHelper.DeviceCompat {
     }
 
     @Override
-    public boolean hasNotchInScreen(@NonNull Context context) {
-        return false;
+    public final boolean hasNotchInScreen(@NonNull Context context) {
+        int state = notchState;
+        if (state == NOTCH_UNKNOWN) {
+            synchronized (this) {
+                state = notchState;
+                if (state == NOTCH_UNKNOWN) {
+                    DeviceCompatMetrics metrics = DeviceHelper.metrics();
+                    long start = metrics != null ? System.nanoTime() : 0L;
+                    state = QuirkDatabase.get(context).deviceQuirks().notchState();
+                    if (state == NOTCH_UNKNOWN) {
+                        state = detectNotchInScreen(context) ? NOTCH_PRESENT : NOTCH_ABSENT;
+                    }
+                    notchState = state;
+                    if (metrics != null) {
+                        metrics.onPhase(DeviceCompatMetrics.PHASE_NOTCH_PROBE, rom, System.nanoTime() - start);
+                    }
+                }
+            }
+        }
+        return state == NOTCH_PRESENT;
     }
 
     @Override
-    public float getScreenNotchHeight(@NonNull Context context) {
+    public final float getScreenNotchHeight(@NonNull Context context) {
+        float height = notchHeight;
+        if (height < 0) {
+            synchronized (this) {
+                height = notchHeight;
+                if (height < 0) {
+                    height = hasNotchInScreen(context) ? probeScreenNotchHeight(context) : 0;
+                    notchHeight = height;
+                }
+            }
+        }
+        return height;
+    }
+
+    /**
+     * Drop memoized notch state, vendor probes run again on next query
+     */
+    synchronized void invalidateNotchCache() {
+        notchHeight = -1F;
+        notchState = NOTCH_UNKNOWN;
+    }
+
+    private float probeScreenNotchHeight(Context context) {
+        DeviceCompatMetrics metrics = DeviceHelper.metrics();
+        long start = metrics != null ? System.nanoTime() : 0L;
+        float height = QuirkDatabase.get(context).deviceQuirks().notchHeight(context);
+        if (height < 0) {
+            height = detectScreenNotchHeight(context);
+        }
+        if (metrics != null) {
+            metrics.onPhase(DeviceCompatMetrics.PHASE_NOTCH_HEIGHT_PROBE, rom, System.nanoTime() - start);
+        }
+        return height;
+    }
+
+    /**
+     * Probe notch presence if not declared in quirk table, result is memoized by {@link #hasNotchInScreen(Context)}
+     */
+    protected boolean detectNotchInScreen(@NonNull Context context) {
+        return false;
+    }
+
+    /**
+     * Probe notch height if not declared in quirk table, only called when device has notch and memoized by {@link #getScreenNotchHeight(Context)}
+     */
+    protected float detectScreenNotchHeight(@NonNull Context context) {
         return 0;
     }
 
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+
+import java.lang.reflect.Method;
+
+import me.alvince.android.devicecompat.ReflectionRegistry.MethodRef;
+
+/**
+ * VIVO 手机兼容适配
+ * <p>
+ * &gt;&nbsp;<a href="https://dev.vivo.com.cn/doc/document/info?id=103">全面屏应用适配指南</a>
+ */
+@DeviceVendor(rom = DeviceHelper.ROM_VIVO)
+class DeviceCompatVivo extends DeviceCompatStub {
+    private static final MethodRef IS_FEATURE_SUPPORT =
+            new MethodRef("android.util.FtFeature", "isFeatureSupport", int.class);
+
+    DeviceCompatVivo() {
+        super(DeviceHelper.ROM_VIVO);
+    }
+
+    @Override
+    protected boolean detectNotchInScreen(@NonNull Context context) {
+        Method isFeatureSupport = IS_FEATURE_SUPPORT.get();
+        if (isFeatureSupport != null) {
+            try {
+                return (boolean) isFeatureSupport.invoke(null, 0x00000020);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected float detectScreenNotchHeight(@NonNull Context context) {
+        return DisplayHelper.fromDip(context, 27);
+    }
+}
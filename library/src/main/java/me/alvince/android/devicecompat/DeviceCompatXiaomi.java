@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.app.Activity;
+import android.content.Context;
+import android.support.annotation.NonNull;
+
+/**
+ * Xiaomi 手机兼容适配
+ * <p>
+ * &gt;&nbsp;<a href="https://dev.mi.com/console/doc/detail?pId=1293">小米 MIUI Notch 屏 Android O 适配说明</a>
+ */
+@DeviceVendor(rom = DeviceHelper.ROM_XIAOMI_MIUI)
+class DeviceCompatXiaomi extends DeviceCompatStub {
+    /**
+     * Xiaomi - 值为 1 时则是 Notch 屏手机
+     */
+    static final String PROP_XIAOMI_CONF_NOTCH = "ro.miui.notch";
+
+    private final Lazy<MiUiSysUtils> utils = new Lazy<MiUiSysUtils>() {
+        @NonNull
+        @Override
+        protected MiUiSysUtils create() {
+            return new MiUiSysUtils(DeviceHelper.getBuildProps());
+        }
+    };
+
+    DeviceCompatXiaomi() {
+        super(DeviceHelper.ROM_XIAOMI_MIUI);
+    }
+
+    @Override
+    public boolean makeSystemUIReverse(@NonNull Activity activity, boolean dark) {
+        if (!requireSysUiReverse()) {
+            return false;
+        }
+        if (isSupportSysUiModeStandard()) {
+            MiUiSysUtils.setStatusBarDarkMode(dark, activity);
+            return dark;
+        } else {
+            return super.makeSystemUIReverse(activity, dark);
+        }
+    }
+
+    @Override
+    protected boolean detectNotchInScreen(@NonNull Context context) {
+        return "1".equals(DeviceHelper.getBuildProps().getProperty(PROP_XIAOMI_CONF_NOTCH));
+    }
+
+    @Override
+    protected float detectScreenNotchHeight(@NonNull Context context) {
+        return DisplayHelper.getStatusBarSize(context);
+    }
+
+    private boolean isSupportSysUiModeStandard() {
+        DeviceProfile profile = DeviceHelper.profile();
+        int miuiVersion = profile.miuiVersion;
+        if (miuiVersion < 0) {
+            miuiVersion = utils().getMIUIVersion();
+            profile.setMiuiVersion(miuiVersion);
+        }
+        // build.prop is only required by incremental versions check
+        return miuiVersion >= MiUiSysUtils.MIUI_VERSION_SYSUI_STANDARD
+                || utils().isSupportSysUiModeStandard(miuiVersion);
+    }
+
+    private MiUiSysUtils utils() {
+        return utils.get();
+    }
+}
@@ -22,28 +22,39 @@
 
 package me.alvince.android.devicecompat;
 
-import android.annotation.SuppressLint;
 import android.app.Activity;
 import android.content.Context;
 import android.content.res.Configuration;
 import android.content.res.Resources;
-import android.graphics.Color;
 import android.os.Build;
 import android.os.Environment;
+import android.os.Looper;
+import android.support.annotation.MainThread;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.annotation.RequiresApi;
+import android.support.annotation.VisibleForTesting;
 import android.text.TextUtils;
+import android.view.View;
 import android.view.ViewConfiguration;
+import android.view.Window;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Properties;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
-import me.alvince.android.devicecompat.vendor.flyme.StatusbarColorUtils;
+import me.alvince.android.devicecompat.ReflectionRegistry.MethodRef;
 
 /**
  * Created by alvince on 2018/7/27
@@ -72,22 +83,14 @@ public class DeviceHelper {
         float getScreenNotchHeight(@NonNull Context context);
     }
 
-    static {
-        // Android allows a system property to override the presence of the navigation bar.
-        // Used by the emulator.
-        // See https://github.com/android/platform_frameworks_base/blob/master/policy/src/com/android/internal/policy/impl/PhoneWindowManager.java#L1076
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
-            try {
-                @SuppressLint("PrivateApi")
-                Class c = Class.forName("android.os.SystemProperties");
-                //noinspection unchecked
-                Method m = c.getDeclaredMethod("get", String.class);
-                m.setAccessible(true);
-                sNavBarOverride = (String) m.invoke(null, "qemu.hw.mainkeys");
-            } catch (Throwable e) {
-                sNavBarOverride = "";
-            }
-        }
+    /**
+     * Callback of {@link #prewarm(Context, Executor, OnPrewarmListener)}
+     */
+    public interface OnPrewarmListener {
+        /**
+         * Called on the background thread once all detection finished
+         */
+        void onPrewarmed();
     }
 
     public static final String ROM_HUAWEI_EMUI = "EMUI";
@@ -99,22 +102,94 @@ public class DeviceHelper {
 
     private static final String CONFIG_SHOW_NAV_BAR_RES_NAME = "config_showNavigationBar";
 
-    private static final String PROP_BUILD_OPPO_VERSION = "ro.build.version.opporom";
-    private static final String PROP_BUILD_VIVO_VERSION = "ro.vivo.os.version";
-    private static final String PROP_HUAWEI_BUILD_EMUI_VERSION = "ro.build.version.emui";
-    private static final String PROP_HUAWEI_CONF_SYS_VERSION = "ro.confg.hw_systemversion";
     /**
-     * Xiaomi - 值为 1 时则是 Notch 屏手机
+     * Keys of system properties read by library, scanned in one pass if build.prop is the resolved source
+     */
+    static final String[] BUILD_PROPS_KEYS = {
+            RomClassifier.PROP_HUAWEI_BUILD_EMUI_VERSION,
+            RomClassifier.PROP_HUAWEI_CONF_SYS_VERSION,
+            RomClassifier.PROP_BUILD_OPPO_VERSION,
+            RomClassifier.PROP_BUILD_VIVO_VERSION,
+            DeviceCompatXiaomi.PROP_XIAOMI_CONF_NOTCH,
+            MiUiSysUtils.KEY_BUILD_VERSION_INCREMENTAL,
+            MiUiSysUtils.KEY_MIUI_INTERNAL_STORAGE,
+            MiUiSysUtils.KEY_MIUI_VERSION_CODE,
+            MiUiSysUtils.KEY_MIUI_VERSION_NAME
+    };
+
+    /**
+     * Override of navigation bar presence, set by emulator
      */
-    private static final String PROP_XIAOMI_CONF_NOTCH = "ro.miui.notch";
+    private static final String PROP_QEMU_HW_MAINKEYS = "qemu.hw.mainkeys";
+
+    /**
+     * Max time main thread waits for a running prewarm before detecting by itself
+     */
+    private static final long PREWARM_AWAIT_MILLIS = 32L;
+
+    /**
+     * Bits of System UI mode remembered per window
+     */
+    private static final int SYSTEM_UI_MODE_DARK = 1;
+    private static final int SYSTEM_UI_MODE_LIGHT_RESULT = 1 << 1;
+    private static final int SYSTEM_UI_MODE_STANDARD = 1 << 2;
 
     private static final Object S_LOCK = DeviceHelper.class;
     private static final String TAG = "DeviceHelper";
 
-    private static String sNavBarOverride;
+    private static volatile DeviceCompatMetrics metrics;
 
-    private BuildProperties buildProps;
-    private DeviceCompat IMPL;
+    /**
+     * Generated vendor indexes, built-in first, earlier registered wins on equal priority
+     */
+    private static final List<VendorIndex> vendorIndexes =
+            new ArrayList<VendorIndex>(Arrays.<VendorIndex>asList(new DeviceCompatVendorIndex()));
+    /**
+     * Guarded by {@link #S_LOCK}
+     */
+    private static boolean vendorResolved;
+
+    private final DeviceProfile profile = new DeviceProfile();
+
+    private final Lazy<BuildProperties> buildProps = new Lazy<BuildProperties>() {
+        @NonNull
+        @Override
+        protected BuildProperties create() {
+            return new BuildProperties(BUILD_PROPS_KEYS);
+        }
+    };
+    private final Lazy<RomClassifier.Result> romResult = new Lazy<RomClassifier.Result>() {
+        @NonNull
+        @Override
+        protected RomClassifier.Result create() {
+            int romMatches = profile.romMatches;
+            if (romMatches >= 0) {
+                return new RomClassifier.Result(romMatches, profile.romVersion);
+            }
+            BuildProperties props = getBuildProps();
+            DeviceCompatMetrics metrics = DeviceHelper.metrics;
+            long start = metrics != null ? System.nanoTime() : 0L;
+            RomClassifier.Result result = RomClassifier.classify(props);
+            if (metrics != null) {
+                metrics.onPhase(DeviceCompatMetrics.PHASE_ROM_CLASSIFY, result.rom, System.nanoTime() - start);
+            }
+            profile.setRom(result.matches, result.version);
+            return result;
+        }
+    };
+    private final Lazy<DeviceCompat> IMPL = new Lazy<DeviceCompat>() {
+        @NonNull
+        @Override
+        protected DeviceCompat create() {
+            String rom = profile.vendor;
+            if (rom == null) {
+                rom = classifyRom().rom;
+                profile.setVendor(rom);
+            }
+            return deviceCompatImpl(rom);
+        }
+    };
+    private volatile PrewarmFuture prewarm;
 
     private DeviceHelper() {
         String template = "Device build >>>" +
@@ -127,10 +202,135 @@ public class DeviceHelper {
                 Build.BRAND, Build.MANUFACTURER, Build.MODEL));
     }
 
+    /**
+     * 初始化设备信息快照
+     * <p>
+     * Resolved device profile is saved under app files dir and reloaded on later starts,
+     * until {@link Build#FINGERPRINT} or library version changes.
+     */
+    public static void init(@NonNull Context context) {
+        SingletonHolder.INSTANCE.profile.restore(context.getApplicationContext());
+    }
+
+    /**
+     * 注册厂商适配索引
+     * <p>
+     * Index is generated for {@link DeviceVendor} classes of module, vendor of higher priority than built-in
+     * replaces it. Must be called before any device query.
+     *
+     * @throws IllegalStateException if vendor already resolved
+     */
+    public static void registerVendorIndex(@NonNull VendorIndex index) {
+        synchronized (S_LOCK) {
+            if (vendorResolved) {
+                throw new IllegalStateException("Vendor already resolved, register index before any device query");
+            }
+            vendorIndexes.add(index);
+        }
+    }
+
+    /**
+     * 注册检测耗时统计
+     * <p>
+     * Phase timings, reflection lookups and fallbacks are reported in release builds as well.
+     *
+     * @param listener {@code null} to unregister
+     */
+    public static void setMetrics(@Nullable DeviceCompatMetrics listener) {
+        metrics = listener;
+    }
+
+    /**
+     * @return registered metrics listener, {@code null} if none
+     */
+    @Nullable
+    static DeviceCompatMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * 后台预热设备检测
+     * <p>
+     * Runs on the executor: profile restore first, then nav-bar override lookup and quirk table load are forked
+     * in parallel with build.prop load and rom detection. Vendor notch probes follow rom detection in the same task,
+     * since the detected rom selects the vendor implementation probing.
+     *
+     * @see #prewarm(Context, Executor, OnPrewarmListener)
+     */
+    @NonNull
+    public static Future<Void> prewarm(@NonNull Context context, @NonNull Executor executor) {
+        return prewarm(context, executor, null);
+    }
+
+    /**
+     * 后台预热设备检测
+     * <p>
+     * Main thread queries issued before prewarm finished wait for it only briefly,
+     * then fallback to detecting synchronously.
+     *
+     * @param listener notified on background thread once finished, not notified if prewarm failed
+     * @return future completes when all detection finished, the running one is returned on repeated calls;
+     * failure of a probe or rejection by executor is reported by {@link Future#get()}
+     */
+    @NonNull
+    public static Future<Void> prewarm(@NonNull Context context, @NonNull final Executor executor,
+                                       @Nullable OnPrewarmListener listener) {
+        final DeviceHelper instance = SingletonHolder.INSTANCE;
+        final Context appContext = context.getApplicationContext();
+        final PrewarmFuture future;
+        synchronized (S_LOCK) {
+            if (instance.prewarm != null) {
+                return instance.prewarm;
+            }
+            future = new PrewarmFuture(3, listener);
+            instance.prewarm = future;
+        }
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        instance.profile.restore(appContext);
+                    } catch (RuntimeException e) {
+                        instance.failPrewarm(future, e);
+                        return;
+                    }
+                    boolean forked = instance.forkPrewarm(executor, future, new Runnable() {
+                        @Override
+                        public void run() {
+                            navBarOverride();
+                        }
+                    }) && instance.forkPrewarm(executor, future, new Runnable() {
+                        @Override
+                        public void run() {
+                            QuirkDatabase.get(appContext).deviceQuirks();
+                        }
+                    });
+                    if (!forked) {
+                        return;
+                    }
+                    try {
+                        hasNotchInScreen(appContext);
+                        getScreenNotchHeight(appContext);
+                    } catch (RuntimeException e) {
+                        instance.failPrewarm(future, e);
+                        return;
+                    }
+                    future.partDone();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            instance.failPrewarm(future, e);
+        }
+        return future;
+    }
+
     /**
      * 判断当前设备是否平板
      * <br/>
      * Refer to &gt; Google I/O App for Android
+     *
+     * @see #isPad(Context)
      */
     public static boolean isPad() {
         Resources res = Resources.getSystem();
@@ -138,143 +338,500 @@ public class DeviceHelper {
         return (screenLayoutConf & Configuration.SCREENLAYOUT_SIZE_MASK) >= Configuration.SCREENLAYOUT_SIZE_LARGE;
     }
 
+    /**
+     * 判断 context 所在屏幕是否平板尺寸
+     * <p>
+     * Classified by usable size of display as framework {@code screenLayout}, stays the same in split-screen
+     * or on resized windows.
+     */
+    public static boolean isPad(@NonNull Context context) {
+        return DisplayMetricsCache.get(context).isLarge();
+    }
+
     /**
      * 检查是否有虚拟按键栏
+     * <p>
+     * Cached with system bar sizes until configuration changes.
      */
     public static boolean hasNavigationBar(@NonNull Context context) {
+        return SystemBarCache.get(context).hasNavigationBar;
+    }
+
+    /**
+     * Resolve navigation bar presence from framework config, see {@link #hasNavigationBar(Context)}
+     */
+    static boolean detectNavigationBar(@NonNull Context context) {
         Resources res = context.getResources();
         int resourceId = res.getIdentifier(CONFIG_SHOW_NAV_BAR_RES_NAME, "bool", "android");
         if (resourceId != 0) {
             boolean hasNav = res.getBoolean(resourceId);
-            // check override flag (see static block)
-            if ("1".equals(sNavBarOverride)) {
+            // check override flag (see navBarOverride)
+            String navBarOverride = navBarOverride();
+            if ("1".equals(navBarOverride)) {
                 hasNav = false;
-            } else if ("0".equals(sNavBarOverride)) {
+            } else if ("0".equals(navBarOverride)) {
                 hasNav = true;
             }
             return hasNav;
         } else {  // fallback
+            DeviceCompatMetrics metrics = DeviceHelper.metrics;
+            if (metrics != null) {
+                metrics.onFallback(DeviceCompatMetrics.FALLBACK_PERMANENT_MENU_KEY, "");
+            }
             return !ViewConfiguration.get(context).hasPermanentMenuKey();
         }
     }
 
     /**
      * 调整系统状态栏色调
+     * <p>
+     * Mode applied is remembered on decor view of window, repeated requests of the same mode return without touching window.
+     * Mode applied through standard flags is checked against System UI visibility of decor view,
+     * so changes made by {@link DisplayHelper#makeContentImmersive(Activity)} etc. are not masked.
      *
      * @param dark light mode
      * @return if system ui stay light mode
      */
+    @MainThread
     @RequiresApi(Build.VERSION_CODES.KITKAT)
     public static boolean makeSystemUiReverse(@NonNull Activity activity, boolean dark) {
-        return SingletonHolder.INSTANCE.getCompatImpl().makeSystemUIReverse(activity, dark);
+        Window window = activity.getWindow();
+        View decorView = window.peekDecorView();
+        Object tag = decorView != null ? decorView.getTag(R.id.devicecompat_system_ui_mode) : null;
+        if (tag instanceof Integer) {
+            int mode = (Integer) tag;
+            if (((mode & SYSTEM_UI_MODE_DARK) != 0) == dark
+                    && ((mode & SYSTEM_UI_MODE_STANDARD) == 0 || isLightStatusBar(decorView) == dark)) {
+                return (mode & SYSTEM_UI_MODE_LIGHT_RESULT) != 0;
+            }
+        }
+        boolean light = SingletonHolder.INSTANCE.getCompatImpl().makeSystemUIReverse(activity, dark);
+        decorView = window.getDecorView();
+        int mode = (dark ? SYSTEM_UI_MODE_DARK : 0) | (light ? SYSTEM_UI_MODE_LIGHT_RESULT : 0);
+        if (light && isLightStatusBar(decorView) == dark) {
+            mode |= SYSTEM_UI_MODE_STANDARD;
+        }
+        decorView.setTag(R.id.devicecompat_system_ui_mode, mode);
+        return light;
+    }
+
+    /**
+     * Standard light status bar flag of decor view, pending transaction included
+     */
+    private static boolean isLightStatusBar(View decorView) {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.M
+                && (SystemUiTransaction.pendingSystemUiVisibility(decorView) & View.SYSTEM_UI_FLAG_LIGHT_STATUS_BAR) != 0;
+    }
+
+    /**
+     * 清除窗口状态栏色调记录
+     * <p>
+     * Required only when System UI mode of window changed outside {@link #makeSystemUiReverse(Activity, boolean)}.
+     */
+    @MainThread
+    public static void invalidateSystemUiReverse(@NonNull Activity activity) {
+        View decorView = activity.getWindow().peekDecorView();
+        if (decorView != null) {
+            decorView.setTag(R.id.devicecompat_system_ui_mode, null);
+        }
     }
 
     /**
      * 检查是否刘海屏
+     * <p>
+     * Since {@link Build.VERSION_CODES#P} display cutout of an {@link Activity} window tracked by {@link NotchTracker}
+     * is preferred, window state is never written into persisted device profile.
      */
     public static boolean hasNotchInScreen(@NonNull Context context) {
-        return SingletonHolder.INSTANCE.getCompatImpl().hasNotchInScreen(context);
+        DeviceHelper instance = SingletonHolder.INSTANCE;
+        if (windowNotch(context) != null) {
+            return true;
+        }
+        int notchState = instance.profile.notchState;
+        if (notchState == DeviceProfile.NOTCH_UNKNOWN && instance.awaitPrewarm("hasNotchInScreen")) {
+            notchState = instance.profile.notchState;
+        }
+        if (notchState == DeviceProfile.NOTCH_UNKNOWN) {
+            boolean hasNotch = instance.getCompatImpl().hasNotchInScreen(context);
+            instance.profile.setNotch(hasNotch);
+            return hasNotch;
+        }
+        return notchState == DeviceProfile.NOTCH_PRESENT;
     }
 
     /**
      * 获取屏幕缺口（刘海）高度
+     * <p>
+     * Since {@link Build.VERSION_CODES#P} depth of display cutout of an {@link Activity} window is preferred.
      */
     public static float getScreenNotchHeight(@NonNull Context context) {
-        return SingletonHolder.INSTANCE.getCompatImpl().getScreenNotchHeight(context);
+        NotchTracker tracker = windowNotch(context);
+        if (tracker != null) {
+            return tracker.getNotchHeight();
+        }
+        DeviceHelper instance = SingletonHolder.INSTANCE;
+        float notchHeight = instance.profile.notchHeight;
+        if (notchHeight < 0 && instance.awaitPrewarm("getScreenNotchHeight")) {
+            notchHeight = instance.profile.notchHeight;
+        }
+        if (notchHeight < 0) {
+            notchHeight = instance.getCompatImpl().getScreenNotchHeight(context);
+            instance.profile.setNotchHeight(notchHeight);
+        }
+        return notchHeight;
+    }
+
+    /**
+     * 清除刘海屏检测缓存
+     * <p>
+     * Notch state and height are probed again on next query.
+     */
+    public static void invalidateNotchCache() {
+        DeviceHelper instance = SingletonHolder.INSTANCE;
+        instance.profile.clearNotch();
+        DeviceCompat impl = instance.IMPL.peek();
+        if (impl instanceof DeviceCompatStub) {
+            ((DeviceCompatStub) impl).invalidateNotchCache();
+        }
     }
 
     /**
      * 检查手机 ROM
      */
     public static boolean validateRom(String rom) {
-        if (rom == null) {
-            return false;
-        }
-        BuildProperties props;
-        switch (rom) {
-            case ROM_HUAWEI_EMUI:
-                props = getBuildProps();
-                return !TextUtils.isEmpty(props.getProperty(PROP_HUAWEI_BUILD_EMUI_VERSION))
-                        || !TextUtils.isEmpty(props.getProperty(PROP_HUAWEI_CONF_SYS_VERSION))
-                        || TextUtils.equals("HUAWEI", Build.BRAND);
-            case ROM_MEIZU_FLYME:
-                try {
-                    final Method method = Build.class.getMethod("hasSmartBar");
-                    return method != null;
-                } catch (final Exception e) {
-                    return false;
-                }
-            case ROM_ONEPLUS:
-                return "OnePlus".equals(Build.BRAND);
-            case ROM_OPPO:
-                return !TextUtils.isEmpty(getBuildProps().getProperty(PROP_BUILD_OPPO_VERSION))
-                        || "OPPO".equalsIgnoreCase(Build.BRAND);
-            case ROM_VIVO:
-                return !TextUtils.isEmpty(getBuildProps().getProperty(PROP_BUILD_VIVO_VERSION))
-                        || "VIVO".equalsIgnoreCase(Build.BRAND);
-            case ROM_XIAOMI_MIUI:
-                // see > https://dev.mi.com/docs/appsmarket/technical_docs/system&device_identification
-                return TextUtils.equals(Build.MANUFACTURER, "Xiaomi");
-            default:
-                return false;
-        }
-    }
-
-    private static BuildProperties getBuildProps() {
+        return rom != null && classifyRom().matches(rom);
+    }
+
+    /**
+     * 获取手机 ROM
+     *
+     * @return rom of the highest priority, e.g. {@link #ROM_XIAOMI_MIUI}, empty for generic devices
+     */
+    @NonNull
+    public static String getRom() {
+        return classifyRom().rom;
+    }
+
+    /**
+     * 获取手机 ROM 版本
+     *
+     * @return version name of {@link #getRom()}, {@code null} if unknown
+     */
+    @Nullable
+    public static String getRomVersion() {
+        return classifyRom().version;
+    }
+
+    /**
+     * 获取手机 ROM 版本号
+     * <p>
+     * Parsed once from version name of MIUI, EMUI, ColorOS, Funtouch OS and Flyme, compare with
+     * {@link RomVersion#pack(int, int, int)}, e.g. {@code getRomVersionCode() >= RomVersion.pack(9, 1, 0)}
+     *
+     * @return packed version of {@link #getRom()}, {@link RomVersion#UNKNOWN} if unknown
+     */
+    public static int getRomVersionCode() {
+        return classifyRom().versionCode;
+    }
+
+    private static RomClassifier.Result classifyRom() {
+        return SingletonHolder.INSTANCE.romResult.get();
+    }
+
+    /**
+     * Forget every resolved device value in memory, detection runs again on next query
+     */
+    @VisibleForTesting
+    static void reset() {
         DeviceHelper instance = SingletonHolder.INSTANCE;
-        if (instance.buildProps == null) {
-            synchronized (S_LOCK) {
-                if (instance.buildProps == null) {
-                    instance.buildProps = new BuildProperties();
-                }
+        instance.IMPL.reset();
+        instance.romResult.reset();
+        instance.buildProps.reset();
+        instance.profile.reset();
+        instance.prewarm = null;
+        synchronized (S_LOCK) {
+            vendorResolved = false;
+        }
+        BuildProperties.resetSource();
+        QuirkDatabase.reset();
+        SystemBarCache.invalidate();
+        DisplayMetricsCache.reset();
+    }
+
+    static BuildProperties getBuildProps() {
+        return SingletonHolder.INSTANCE.buildProps.get();
+    }
+
+    static DeviceProfile profile() {
+        return SingletonHolder.INSTANCE.profile;
+    }
+
+    /**
+     * Android allows a system property to override the presence of the navigation bar.
+     * Used by the emulator.
+     * See https://github.com/android/platform_frameworks_base/blob/master/policy/src/com/android/internal/policy/impl/PhoneWindowManager.java#L1076
+     */
+    private static String navBarOverride() {
+        DeviceProfile profile = SingletonHolder.INSTANCE.profile;
+        String navBarOverride = profile.navBarOverride;
+        if (navBarOverride == null) {
+            DeviceCompatMetrics metrics = DeviceHelper.metrics;
+            long start = metrics != null ? System.nanoTime() : 0L;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+                navBarOverride = getBuildProps().getProperty(PROP_QEMU_HW_MAINKEYS);
+            }
+            if (navBarOverride == null) {
+                navBarOverride = "";
+            }
+            profile.setNavBarOverride(navBarOverride);
+            if (metrics != null) {
+                metrics.onPhase(DeviceCompatMetrics.PHASE_NAV_BAR_OVERRIDE, navBarOverride, System.nanoTime() - start);
             }
         }
-        return instance.buildProps;
+        return navBarOverride;
     }
 
-    private static DeviceCompat deviceCompatImpl() {
-        if (validateRom(ROM_HUAWEI_EMUI)) {
-            return new DeviceCompatHuawei();
+    /**
+     * Cutout tracker already attached to activity window on main thread since {@link Build.VERSION_CODES#P},
+     * peeked without installing decor view so {@link Window#requestFeature(int)} stays usable.
+     *
+     * @return {@code null} if not applicable or window overlaps no cutout
+     */
+    @Nullable
+    private static NotchTracker windowNotch(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.P
+                || !(context instanceof Activity)
+                || Looper.myLooper() != Looper.getMainLooper()) {
+            return null;
         }
-        if (validateRom(ROM_ONEPLUS)) {
-            return new DeviceComaptOnePlus();
+        Window window = ((Activity) context).getWindow();
+        NotchTracker tracker = window != null ? NotchTracker.peek(window) : null;
+        return tracker != null && tracker.isResolved() && tracker.hasNotch() ? tracker : null;
+    }
+
+    private static DeviceCompat deviceCompatImpl(String rom) {
+        VendorIndex[] indexes;
+        synchronized (S_LOCK) {
+            vendorResolved = true;
+            indexes = vendorIndexes.toArray(new VendorIndex[vendorIndexes.size()]);
         }
-        if (validateRom(ROM_OPPO)) {
-            return new DeviceCompatOppo();
+        VendorIndex matched = null;
+        int priority = VendorIndex.NO_VENDOR;
+        for (VendorIndex index : indexes) {
+            int p = index.priority(rom);
+            if (p != VendorIndex.NO_VENDOR && p > priority) {
+                matched = index;
+                priority = p;
+            }
         }
-        if (validateRom(ROM_VIVO)) {
-            return new DeviceCompatVivo();
+        DeviceCompatStub impl = matched != null ? matched.create(rom) : null;
+        return impl != null ? impl : new DeviceCompatStub(rom);
+    }
+
+    /**
+     * Run one independent probe of prewarm on executor
+     *
+     * @return {@code false} if rejected, prewarm is failed then
+     */
+    private boolean forkPrewarm(Executor executor, final PrewarmFuture future, final Runnable probe) {
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        probe.run();
+                    } catch (RuntimeException e) {
+                        failPrewarm(future, e);
+                        return;
+                    }
+                    future.partDone();
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            failPrewarm(future, e);
+            return false;
         }
-        if (validateRom(ROM_XIAOMI_MIUI)) {
-            return new DeviceCompatXiaomi();
+    }
+
+    /**
+     * Complete prewarm with failure and forget it, so that later {@link #prewarm} calls start over
+     */
+    private void failPrewarm(PrewarmFuture future, Throwable cause) {
+        L.e(TAG, "Prewarm failed", cause);
+        future.fail(cause);
+        synchronized (S_LOCK) {
+            if (prewarm == future) {
+                prewarm = null;
+            }
+        }
+    }
+
+    /**
+     * Wait briefly for a running prewarm on main thread
+     *
+     * @param api queried api, reported on timeout
+     * @return {@code true} if prewarm finished
+     */
+    private boolean awaitPrewarm(String api) {
+        PrewarmFuture future = prewarm;
+        if (future == null || future.isDone()) {
+            return future != null;
+        }
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            return false;
         }
-        if (validateRom(ROM_MEIZU_FLYME)) {
-            return new DeviceCompatFlyme();
+        if (future.await(PREWARM_AWAIT_MILLIS)) {
+            return true;
         }
-        return new DeviceCompatStub();
+        DeviceCompatMetrics metrics = DeviceHelper.metrics;
+        if (metrics != null) {
+            metrics.onFallback(DeviceCompatMetrics.FALLBACK_PREWARM_TIMEOUT, api);
+        }
+        return false;
     }
 
     private DeviceCompat getCompatImpl() {
-        if (IMPL == null) {
-            IMPL = deviceCompatImpl();
-        }
-        return IMPL;
+        return IMPL.get();
     }
 
 
+    /**
+     * Tiered reader of system properties
+     * <p>
+     * Source is resolved once per process, cheapest first: cached {@code SystemProperties.get} handle,
+     * one pass scan of {@code /system/build.prop} for the registered keys, then {@code Build.getString} per key.
+     * Resolved values are memoized, absent ones included.
+     */
     static class BuildProperties {
 
-        private Properties props = new Properties();
-        private boolean propsLoadFailed;
+        static final int SOURCE_UNRESOLVED = -1;
+        static final int SOURCE_SYSTEM_PROPERTIES = 0;
+        static final int SOURCE_BUILD_PROP = 1;
+        static final int SOURCE_BUILD_GET_STRING = 2;
+        static final int SOURCE_NONE = 3;
+
+        private static final String[] SOURCE_NAMES = {"system_properties", "build_prop", "build_get_string", "none"};
+
+        private static final MethodRef SYSTEM_PROPERTIES_GET =
+                new MethodRef("android.os.SystemProperties", "get", String.class);
+        private static final MethodRef BUILD_GET_STRING = new MethodRef(Build.class, "getString", String.class);
+
+        /**
+         * Defined on every build, used to verify {@code SystemProperties.get} works
+         */
+        private static final String PROBE_KEY = "ro.build.version.sdk";
+        /**
+         * Memoized value of absent property
+         */
+        private static final String ABSENT = "";
+
+        private static final Charset CHARSET = Charset.forName("ISO-8859-1");
+        private static final int BUFFER_SIZE = 4 * 1024;
+
+        private static volatile int source = SOURCE_UNRESOLVED;
+
+        private final String[] keys;
+        private final byte[][] keyBytes;
+        private final Map<String, String> props;
+        private boolean scanned;
+        private boolean scanFailed;
+
+        BuildProperties(String... keys) {
+            this.keys = keys;
+            this.keyBytes = new byte[keys.length][];
+            for (int i = 0; i < keys.length; i++) {
+                keyBytes[i] = keys[i].getBytes(CHARSET);
+            }
+            this.props = new ConcurrentHashMap<>(keys.length * 2);
+        }
+
+        /**
+         * @return value of property, {@code null} if absent
+         */
+        @Nullable
+        String getProperty(String key) {
+            String value = props.get(key);
+            if (value == null) {
+                value = fetch(key);
+            }
+            return value.isEmpty() ? null : value;
+        }
 
-        BuildProperties() {
+        /**
+         * Batch of {@link #getProperty(String)}, source is resolved and build.prop scanned once for all keys
+         */
+        @NonNull
+        String[] getProperties(String... keys) {
+            if (source() == SOURCE_BUILD_PROP) {
+                scan();
+            }
+            String[] values = new String[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                values[i] = getProperty(keys[i]);
+            }
+            return values;
+        }
+
+        private String fetch(String key) {
+            String value = null;
+            int current = source();
+            while (value == null) {
+                switch (current) {
+                    case SOURCE_SYSTEM_PROPERTIES:
+                        value = invoke(SYSTEM_PROPERTIES_GET, key);
+                        break;
+                    case SOURCE_BUILD_PROP:
+                        if (indexOf(key) < 0) {
+                            reportFallback(DeviceCompatMetrics.FALLBACK_BUILD_PROPS_UNREGISTERED, key);
+                            value = getString(key);
+                            if (value == null) {
+                                value = ABSENT;
+                            }
+                        } else if (scan()) {
+                            value = props.get(key);
+                        } else {
+                            reportFallback(DeviceCompatMetrics.FALLBACK_BUILD_PROPS_LOAD_FAILED, key);
+                        }
+                        break;
+                    case SOURCE_BUILD_GET_STRING:
+                        value = getString(key);
+                        break;
+                    default:
+                        value = ABSENT;
+                        break;
+                }
+                if (value == null) {
+                    current = downgrade(current);
+                }
+            }
+            props.put(key, value);
+            return value;
+        }
+
+        /**
+         * Scan build.prop once for all registered keys
+         *
+         * @return {@code false} if build.prop unreadable
+         */
+        private synchronized boolean scan() {
+            if (scanned) {
+                return !scanFailed;
+            }
+            DeviceCompatMetrics metrics = DeviceHelper.metrics();
+            long start = metrics != null ? System.nanoTime() : 0L;
             InputStream is = null;
             try {
                 is = new FileInputStream(new File(Environment.getRootDirectory(), "build.prop"));
-                props.load(is);
+                load(is);
+                for (String key : keys) {
+                    if (!props.containsKey(key)) {
+                        props.put(key, ABSENT);
+                    }
+                }
             } catch (IOException e) {
-                propsLoadFailed = true;
-                L.e(TAG, String.format("Load build.prop error\n%s", Arrays.toString(e.getStackTrace())), e);
+                scanFailed = true;
+                L.e(TAG, "Load build.prop error", e);
             } finally {
                 if (is != null) {
                     try {
@@ -284,219 +841,189 @@ public class DeviceHelper {
                     }
                 }
             }
+            scanned = true;
+            if (metrics != null) {
+                metrics.onPhase(DeviceCompatMetrics.PHASE_BUILD_PROPS_LOAD,
+                        scanFailed ? DeviceCompatMetrics.FALLBACK_BUILD_PROPS_LOAD_FAILED : "",
+                        System.nanoTime() - start);
+            }
+            return !scanFailed;
         }
 
-        String getProperty(String key) {
-            String value = props.getProperty(key);
-            if (value == null && propsLoadFailed) {
-                value = loadFromSystemProp(key);
-                if (!TextUtils.isEmpty(value)) {
-                    props.setProperty(key, value);
+        /**
+         * Scan properties from stream, lines of unregistered keys are skipped without allocation.
+         */
+        void load(InputStream is) throws IOException {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            byte[] line = new byte[256];
+            int length = 0;
+            int count;
+            while ((count = is.read(buffer)) != -1) {
+                for (int i = 0; i < count; i++) {
+                    byte b = buffer[i];
+                    if (b == '\n' || b == '\r') {
+                        parseLine(line, length);
+                        length = 0;
+                    } else {
+                        if (length == line.length) {
+                            line = Arrays.copyOf(line, length * 2);
+                        }
+                        line[length++] = b;
+                    }
                 }
             }
-            return value;
+            parseLine(line, length);
         }
 
-        @SuppressLint("PrivateApi")
-        private String loadFromSystemProp(String key) {
-            String result = null;
-            try {
-                Class buildClazz = Build.class;
-                //noinspection unchecked,JavaReflectionMemberAccess
-                Method getString = buildClazz.getMethod("getString", String.class);
-                result = (String) getString.invoke(null, key);
-            } catch (IllegalArgumentException e) {
-                e.printStackTrace();
-            } catch (Exception e) {
-                e.printStackTrace();
+        private void parseLine(byte[] line, int length) {
+            int start = 0;
+            while (start < length && isWhitespace(line[start])) {
+                start++;
             }
-            return result;
+            if (start == length || line[start] == '#' || line[start] == '!') {
+                return;
+            }
+            int separator = start;
+            while (separator < length && line[separator] != '=' && line[separator] != ':') {
+                separator++;
+            }
+            int keyEnd = separator;
+            while (keyEnd > start && isWhitespace(line[keyEnd - 1])) {
+                keyEnd--;
+            }
+            int index = indexOf(line, start, keyEnd - start);
+            if (index < 0) {
+                return;
+            }
+            int valueStart = Math.min(separator + 1, length);
+            while (valueStart < length && isWhitespace(line[valueStart])) {
+                valueStart++;
+            }
+            props.put(keys[index], new String(line, valueStart, length - valueStart, CHARSET));
         }
-    }
-
-    private static final class SingletonHolder {
-        static final DeviceHelper INSTANCE = new DeviceHelper();
-    }
 
-    /**
-     * 华为手机兼容适配
-     * <p>
-     * &gt;&nbsp;<a href="http://developer.huawei.com/consumer/cn/devservice/doc/50114">刘海屏手机安卓O版本适配指导</a>
-     */
-    private static class DeviceCompatHuawei extends DeviceCompatStub {
-        @Override
-        public boolean hasNotchInScreen(@NonNull Context context) {
-            if (!hasScreenNotch) {
-                try {
-                    ClassLoader cl = context.getClassLoader();
-                    Class HwNotchSizeUtil = cl.loadClass("com.huawei.android.util.HwNotchSizeUtil");
-                    //noinspection unchecked
-                    Method get = HwNotchSizeUtil.getMethod("hasNotchInScreen");
-                    hasScreenNotch = (boolean) get.invoke(HwNotchSizeUtil);
-                } catch (ClassNotFoundException e) {
-                    L.e(TAG, "hasNotchInScreen ClassNotFoundException", e);
-                } catch (NoSuchMethodException e) {
-                    L.e(TAG, "hasNotchInScreen NoSuchMethodException", e);
-                } catch (Exception e) {
-                    L.e(TAG, "hasNotchInScreen Exception", e);
+        private int indexOf(byte[] line, int offset, int length) {
+            for (int i = 0; i < keyBytes.length; i++) {
+                byte[] key = keyBytes[i];
+                if (key.length != length) {
+                    continue;
+                }
+                int j = 0;
+                while (j < length && key[j] == line[offset + j]) {
+                    j++;
+                }
+                if (j == length) {
+                    return i;
                 }
             }
-            return hasScreenNotch;
+            return -1;
         }
 
-        @Override
-        public float getScreenNotchHeight(@NonNull Context context) {
-            if (hasNotchInScreen(context) && screenNotchHeight == 0) {
-                int[] ret;  // [ width, height ]
-                try {
-                    ClassLoader cl = context.getClassLoader();
-                    Class HwNotchSizeUtil = cl.loadClass("com.huawei.android.util.HwNotchSizeUtil");
-                    //noinspection unchecked
-                    Method get = HwNotchSizeUtil.getMethod("getNotchSize");
-                    ret = (int[]) get.invoke(HwNotchSizeUtil);
-                    screenNotchHeight = ret[1];
-                } catch (ClassNotFoundException e) {
-                    L.e(TAG, "getNotchSize ClassNotFoundException", e);
-                } catch (NoSuchMethodException e) {
-                    L.e(TAG, "getNotchSize NoSuchMethodException", e);
-                } catch (Exception e) {
-                    L.e(TAG, "getNotchSize Exception", e);
+        private int indexOf(String key) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i].equals(key)) {
+                    return i;
                 }
             }
-            return screenNotchHeight;
+            return -1;
         }
-    }
 
-    /**
-     * OPPO 手机兼容适配
-     * <p>
-     * &gt;&nbsp;<a href="https://open.oppomobile.com/wiki/doc#id=10159">OPPO 凹形屏适配说明</a>
-     */
-    private static class DeviceCompatOppo extends DeviceCompatStub {
-        @Override
-        public boolean hasNotchInScreen(@NonNull Context context) {
-            if (!hasScreenNotch) {
-                hasScreenNotch = context.getPackageManager()
-                        .hasSystemFeature("com.oppo.feature.screen.heteromorphism");
-            }
-            return hasScreenNotch;
+        private static boolean isWhitespace(byte b) {
+            return b == ' ' || b == '\t' || b == '\f';
         }
 
-        @Override
-        public float getScreenNotchHeight(@NonNull Context context) {
-            // see > https://open.oppomobile.com/wiki/doc#id=10159
-            return hasNotchInScreen(context) ? 80F : 0;
+        /**
+         * {@code Build.getString} reports absent property as {@link Build#UNKNOWN}
+         */
+        private static String getString(String key) {
+            String value = invoke(BUILD_GET_STRING, key);
+            return Build.UNKNOWN.equals(value) ? ABSENT : value;
         }
-    }
 
-    /**
-     * VIVO 手机兼容适配
-     * <p>
-     * &gt;&nbsp;<a href="https://dev.vivo.com.cn/doc/document/info?id=103">全面屏应用适配指南</a>
-     */
-    private static class DeviceCompatVivo extends DeviceCompatStub {
-        @SuppressLint("PrivateApi")
-        @Override
-        public boolean hasNotchInScreen(@NonNull Context context) {
-            if (!hasScreenNotch) {
-                try {
-                    ClassLoader cl = context.getClassLoader();
-                    Class ftFeature = cl.loadClass("android.util.FtFeature");
-                    Method[] methods = ftFeature.getDeclaredMethods();
-                    if (methods != null) {
-                        for (Method method : methods) {
-                            if (method.getName().equalsIgnoreCase("isFeatureSupport")) {
-                                hasScreenNotch = (boolean) method.invoke(ftFeature, 0x00000020);
-                                break;
-                            }
-                        }
-                    }
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
+        /**
+         * @return {@code null} if handle unavailable or invocation failed
+         */
+        private static String invoke(MethodRef ref, String key) {
+            Method method = ref.get();
+            if (method == null) {
+                return null;
+            }
+            try {
+                String value = (String) method.invoke(null, key);
+                return value != null ? value : ABSENT;
+            } catch (Exception e) {
+                L.e(TAG, "Read property " + key + " error", e);
+                return null;
             }
-            return hasScreenNotch;
-        }
-
-        @Override
-        public float getScreenNotchHeight(@NonNull Context context) {
-            return hasNotchInScreen(context) ? DisplayHelper.fromDip(context, 27) : 0;
-        }
-    }
-
-    /**
-     * OnePlus 手机兼容适配
-     */
-    private static class DeviceComaptOnePlus extends DeviceCompatStub {
-        @Override
-        public boolean hasNotchInScreen(@NonNull Context context) {
-            return supportNotch() || super.hasNotchInScreen(context);
         }
 
-        @Override
-        public float getScreenNotchHeight(@NonNull Context context) {
-            if (supportNotch()) {
-                return DisplayHelper.getStatusBarSize(context);
+        static int source() {
+            int s = source;
+            if (s == SOURCE_UNRESOLVED) {
+                synchronized (BuildProperties.class) {
+                    s = source;
+                    if (s == SOURCE_UNRESOLVED) {
+                        s = resolveSource(SOURCE_SYSTEM_PROPERTIES);
+                    }
+                }
             }
-            return super.getScreenNotchHeight(context);
+            return s;
         }
 
-        private boolean supportNotch() {
-            return "OnePlus6".equals(Build.DEVICE);
+        @VisibleForTesting
+        static synchronized void resetSource() {
+            source = SOURCE_UNRESOLVED;
         }
-    }
 
-    /**
-     * Xiaomi 手机兼容适配
-     * <p>
-     * &gt;&nbsp;<a href="https://dev.mi.com/console/doc/detail?pId=1293">小米 MIUI Notch 屏 Android O 适配说明</a>
-     */
-    private static class DeviceCompatXiaomi extends DeviceCompatStub {
-        private MiUiSysUtils utils;
-
-        DeviceCompatXiaomi() {
-            super();
-            utils = new MiUiSysUtils(getBuildProps());
+        /**
+         * Fall back to next available source once current one fails
+         */
+        private static synchronized int downgrade(int failed) {
+            int s = source;
+            if (s == failed) {
+                s = resolveSource(failed + 1);
+            }
+            return s;
         }
 
-        @Override
-        public boolean makeSystemUIReverse(@NonNull Activity activity, boolean dark) {
-            if (!requireSysUiReverse()) {
-                return false;
+        private static int resolveSource(int from) {
+            DeviceCompatMetrics metrics = DeviceHelper.metrics();
+            long start = metrics != null ? System.nanoTime() : 0L;
+            int s = from;
+            for (; s < SOURCE_NONE; s++) {
+                if (isSourceAvailable(s)) {
+                    break;
+                }
             }
-            if (utils.isSupportSysUiModeStandard()) {
-                MiUiSysUtils.setStatusBarDarkMode(dark, activity);
-                return dark;
-            } else {
-                return super.makeSystemUIReverse(activity, dark);
+            source = s;
+            if (metrics != null) {
+                metrics.onPhase(DeviceCompatMetrics.PHASE_PROPERTY_SOURCE, SOURCE_NAMES[s], System.nanoTime() - start);
             }
+            return s;
         }
 
-        @Override
-        public boolean hasNotchInScreen(@NonNull Context context) {
-            if (!hasScreenNotch) {
-                hasScreenNotch = "1".equals(DeviceHelper.getBuildProps().getProperty(PROP_XIAOMI_CONF_NOTCH));
+        private static boolean isSourceAvailable(int source) {
+            switch (source) {
+                case SOURCE_SYSTEM_PROPERTIES:
+                    return !TextUtils.isEmpty(invoke(SYSTEM_PROPERTIES_GET, PROBE_KEY));
+                case SOURCE_BUILD_PROP:
+                    return new File(Environment.getRootDirectory(), "build.prop").canRead();
+                case SOURCE_BUILD_GET_STRING:
+                    return BUILD_GET_STRING.get() != null;
+                default:
+                    return true;
             }
-            return hasScreenNotch;
         }
 
-        @Override
-        public float getScreenNotchHeight(@NonNull Context context) {
-            return hasNotchInScreen(context) ? DisplayHelper.getStatusBarSize(context) : 0;
+        private static void reportFallback(String fallback, String key) {
+            DeviceCompatMetrics metrics = DeviceHelper.metrics();
+            if (metrics != null) {
+                metrics.onFallback(fallback, key);
+            }
         }
     }
 
-    /**
-     * Flyme 手机兼容适配
-     */
-    private static class DeviceCompatFlyme extends DeviceCompatStub {
-        @Override
-        public boolean makeSystemUIReverse(@NonNull Activity activity, boolean dark) {
-            if (!requireSysUiReverse()) {
-                return false;
-            }
-            StatusbarColorUtils.setStatusBarDarkIcon(activity, dark ? Color.BLACK : Color.WHITE);
-            return dark;
-        }
+    private static final class SingletonHolder {
+        static final DeviceHelper INSTANCE = new DeviceHelper();
     }
 }
@@ -0,0 +1,351 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.content.Context;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistent snapshot of the resolved device profile
+ * <p>
+ * Saved as a small versioned binary file under app files dir, reloaded in one read on later starts.
+ * Snapshot is dropped once {@link Build#FINGERPRINT}, screen density or library version changes.
+ * <p>
+ * Setters only mark the profile dirty, changes are flushed by a single write on a background thread.
+ *
+ * @author alvince.zy@gmail.com
+ */
+final class DeviceProfile {
+
+    static final int NOTCH_UNKNOWN = -1;
+    static final int NOTCH_ABSENT = 0;
+    static final int NOTCH_PRESENT = 1;
+
+    private static final String FILE_NAME = "devicecompat.profile";
+    private static final int MAGIC = 0x44435046;  // DCPF
+    private static final int FORMAT_VERSION = 3;
+    private static final long FLUSH_KEEP_ALIVE_SECONDS = 5L;
+
+    private static final String TAG = "DeviceProfile";
+
+    /**
+     * Matched rom of {@link DeviceHelper}, empty for generic devices
+     */
+    volatile String vendor;
+    /**
+     * Flags of matched roms, see {@link RomClassifier#flagOf(String)}
+     */
+    volatile int romMatches = -1;
+    volatile String romVersion;
+    volatile int notchState = NOTCH_UNKNOWN;
+    volatile float notchHeight = -1F;
+    volatile int miuiVersion = -1;
+    volatile String navBarOverride;
+
+    private File file;
+    /**
+     * Density of snapshot, notch height is persisted in px
+     */
+    private int densityDpi;
+    private boolean flushScheduled;
+
+    private final Runnable flush = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    /**
+     * Attach profile to app files dir, resolved values of a valid snapshot are restored.
+     */
+    synchronized void restore(@NonNull Context context) {
+        if (file != null) {
+            return;
+        }
+        DeviceCompatMetrics metrics = DeviceHelper.metrics();
+        long start = metrics != null ? System.nanoTime() : 0L;
+        file = new File(context.getFilesDir(), FILE_NAME);
+        densityDpi = context.getResources().getDisplayMetrics().densityDpi;
+        // values resolved before attaching need to be written even if snapshot restored
+        boolean dirty = isDirty();
+        boolean restored = false;
+        if (file.exists()) {
+            try {
+                restored = read(readFully(file));
+            } catch (IOException e) {
+                L.e(TAG, "Restore device profile error", e);
+            }
+        }
+        if (!restored || dirty) {
+            save();
+        }
+        if (metrics != null) {
+            metrics.onPhase(DeviceCompatMetrics.PHASE_PROFILE_RESTORE, restored ? "restored" : "",
+                    System.nanoTime() - start);
+        }
+    }
+
+    void setVendor(@NonNull String rom) {
+        vendor = rom;
+        save();
+    }
+
+    synchronized void setRom(int matches, String version) {
+        romVersion = version;
+        romMatches = matches;
+        save();
+    }
+
+    void setNotch(boolean hasNotch) {
+        notchState = hasNotch ? NOTCH_PRESENT : NOTCH_ABSENT;
+        save();
+    }
+
+    void setNotchHeight(float height) {
+        notchHeight = height;
+        save();
+    }
+
+    void clearNotch() {
+        notchHeight = -1F;
+        notchState = NOTCH_UNKNOWN;
+        save();
+    }
+
+    void setMiuiVersion(int version) {
+        miuiVersion = version;
+        save();
+    }
+
+    void setNavBarOverride(@NonNull String override) {
+        navBarOverride = override;
+        save();
+    }
+
+    /**
+     * Forget resolved values in memory, snapshot file is kept
+     */
+    @VisibleForTesting
+    synchronized void reset() {
+        vendor = null;
+        romMatches = -1;
+        romVersion = null;
+        notchState = NOTCH_UNKNOWN;
+        notchHeight = -1F;
+        miuiVersion = -1;
+        navBarOverride = null;
+        file = null;
+    }
+
+    /**
+     * Schedule snapshot write, skipped until profile attached by {@link #restore(Context)}.
+     * Changes made before the scheduled write runs are written together.
+     */
+    synchronized void save() {
+        if (file == null || flushScheduled) {
+            return;
+        }
+        flushScheduled = true;
+        FlushExecutorHolder.EXECUTOR.execute(flush);
+    }
+
+    /**
+     * Wait for scheduled writes
+     */
+    @VisibleForTesting
+    static void awaitFlush() throws InterruptedException, ExecutionException {
+        FlushExecutorHolder.EXECUTOR.submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }).get();
+    }
+
+    /**
+     * Write snapshot through a temp file
+     */
+    private void flush() {
+        File file;
+        byte[] data;
+        synchronized (this) {
+            flushScheduled = false;
+            file = this.file;
+            if (file == null) {
+                return;
+            }
+            try {
+                data = write();
+            } catch (IOException e) {
+                L.e(TAG, "Save device profile error", e);
+                return;
+            }
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        FileOutputStream os = null;
+        try {
+            os = new FileOutputStream(temp);
+            os.write(data);
+            os.getFD().sync();
+            os.close();
+            os = null;
+            if (!temp.renameTo(file)) {
+                L.d(TAG, "Rename device profile failed");
+            }
+        } catch (IOException e) {
+            L.e(TAG, "Save device profile error", e);
+        } finally {
+            if (os != null) {
+                try {
+                    os.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private boolean isDirty() {
+        return vendor != null || romMatches >= 0 || notchState != NOTCH_UNKNOWN || notchHeight >= 0
+                || miuiVersion >= 0 || navBarOverride != null;
+    }
+
+    private boolean read(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        if (in.readInt() != MAGIC
+                || in.readInt() != FORMAT_VERSION
+                || in.readInt() != BuildConfig.VERSION_CODE
+                || in.readInt() != densityDpi
+                || !in.readUTF().equals(String.valueOf(Build.FINGERPRINT))) {
+            L.d(TAG, "Device profile outdated");
+            return false;
+        }
+        String vendor = in.readBoolean() ? in.readUTF() : null;
+        int romMatches = in.readInt();
+        String romVersion = in.readBoolean() ? in.readUTF() : null;
+        int notchState = in.readByte();
+        float notchHeight = in.readFloat();
+        int miuiVersion = in.readInt();
+        String navBarOverride = in.readBoolean() ? in.readUTF() : null;
+
+        // values resolved before restoring take precedence
+        if (this.vendor == null) {
+            this.vendor = vendor;
+        }
+        if (this.romMatches < 0) {
+            this.romVersion = romVersion;
+            this.romMatches = romMatches;
+        }
+        if (this.notchState == NOTCH_UNKNOWN) {
+            this.notchState = notchState;
+        }
+        if (this.notchHeight < 0) {
+            this.notchHeight = notchHeight;
+        }
+        if (this.miuiVersion < 0) {
+            this.miuiVersion = miuiVersion;
+        }
+        if (this.navBarOverride == null) {
+            this.navBarOverride = navBarOverride;
+        }
+        return true;
+    }
+
+    private byte[] write() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(BuildConfig.VERSION_CODE);
+        out.writeInt(densityDpi);
+        out.writeUTF(String.valueOf(Build.FINGERPRINT));
+        String vendor = this.vendor;
+        out.writeBoolean(vendor != null);
+        if (vendor != null) {
+            out.writeUTF(vendor);
+        }
+        out.writeInt(romMatches);
+        String romVersion = this.romVersion;
+        out.writeBoolean(romVersion != null);
+        if (romVersion != null) {
+            out.writeUTF(romVersion);
+        }
+        out.writeByte(notchState);
+        out.writeFloat(notchHeight);
+        out.writeInt(miuiVersion);
+        String navBarOverride = this.navBarOverride;
+        out.writeBoolean(navBarOverride != null);
+        if (navBarOverride != null) {
+            out.writeUTF(navBarOverride);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Single background thread for profile writes, stopped when idle
+     */
+    private static final class FlushExecutorHolder {
+        static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(1, 1,
+                FLUSH_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(@NonNull Runnable r) {
+                        Thread thread = new Thread(r, "DeviceProfile-flush");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+
+        static {
+            EXECUTOR.allowCoreThreadTimeOut(true);
+        }
+    }
+
+    private static byte[] readFully(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            byte[] data = new byte[(int) raf.length()];
+            raf.readFully(data);
+            return data;
+        } finally {
+            raf.close();
+        }
+    }
+}
@@ -23,13 +23,13 @@
 package me.alvince.android.devicecompat;
 
 import android.app.Activity;
-import android.content.ContentResolver;
 import android.content.Context;
+import android.content.ContextWrapper;
 import android.content.res.Configuration;
 import android.content.res.Resources;
-import android.graphics.Color;
 import android.graphics.Point;
 import android.os.Build;
+import android.os.Looper;
 import android.provider.Settings;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
@@ -38,7 +38,6 @@ import android.util.DisplayMetrics;
 import android.util.TypedValue;
 import android.view.View;
 import android.view.Window;
-import android.view.WindowManager;
 
 /**
  * Screen display utils wrapper
@@ -49,34 +48,34 @@ import android.view.WindowManager;
  */
 public class DisplayHelper {
 
-    private static final String IDENTIFIER_STATUS_BAR_SIZE = "status_bar_height";
-    private static final String IDENTIFIER_NAV_BAR_HEIGHT = "navigation_bar_height";
-    private static final String IDENTIFIER_NAV_BAR_HEIGHT_LANDSCAPE = "navigation_bar_height_landscape";
-
     /**
      * 获取系统状态栏高度
+     * <p>
+     * Cached per screen density until configuration changes.
      */
     public static int getStatusBarSize(@NonNull Context context) {
-        return getInternalDimensionSize(context.getResources(), IDENTIFIER_STATUS_BAR_SIZE);
+        return SystemBarCache.get(context).statusBarSize;
     }
 
     /**
      * 获取手机导航栏（虚拟按键）高度
+     * <p>
+     * Sizes of both orientations are cached per screen density until configuration changes,
+     * see {@link ScreenMetrics#getNavigationBarSize()} for size of display rotation.
      */
     public static int getNavigationBarSize(@NonNull Context context) {
-        int size = 0;
-        if (DeviceHelper.hasNavigationBar(context)) {
-            String key;
-            Resources res = context.getResources();
-            boolean curPortrait = res.getConfiguration().orientation == Configuration.ORIENTATION_PORTRAIT;
-            if (curPortrait) {
-                key = IDENTIFIER_NAV_BAR_HEIGHT;
-            } else {
-                key = IDENTIFIER_NAV_BAR_HEIGHT_LANDSCAPE;
-            }
-            size = getInternalDimensionSize(res, key);
-        }
-        return size;
+        return SystemBarCache.get(context)
+                .navigationBarSize(context.getResources().getConfiguration().orientation);
+    }
+
+    /**
+     * 获取 context 所在屏幕的尺寸信息
+     * <p>
+     * Cached per display until the display or configuration changes, safe to call from any thread.
+     */
+    @NonNull
+    public static ScreenMetrics getScreenMetrics(@NonNull Context context) {
+        return DisplayMetricsCache.get(context);
     }
 
     /**
@@ -95,31 +94,29 @@ public class DisplayHelper {
 
     /**
      * 检查指定Activity是否运行在全屏模式
+     * <p>
+     * Layout state is tracked per window on main thread, other threads probe the decor view directly.
      */
     public static boolean isInFullscreen(Activity activity) {
         if (activity == null) {
             return false;
         }
-
-        boolean uiFullscreen = false;
         View decorView = activity.getWindow().getDecorView();
-        if (decorView != null) {
-            int uiVisibility = decorView.getSystemUiVisibility();
-            boolean visibilityFullscreen = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN
-                    && (uiVisibility & View.SYSTEM_UI_FLAG_LAYOUT_FULLSCREEN) == View.SYSTEM_UI_FLAG_LAYOUT_FULLSCREEN;
-            if (visibilityFullscreen) {
-                int[] loc = new int[2];
-                decorView.getLocationOnScreen(loc);
-                boolean layoutFullscreen = loc[0] == 0 && loc[1] == 0;
-                boolean layoutNoPadding = decorView.getPaddingTop() == 0
-                        && decorView.getPaddingBottom() == 0
-                        && decorView.getPaddingLeft() == 0
-                        && decorView.getPaddingRight() == 0;
-                uiFullscreen = layoutFullscreen && layoutNoPadding;
-            }
+        if (decorView == null) {
+            return false;
+        }
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            return FullscreenTracker.of(decorView).isInFullscreen();
         }
+        return probeInFullscreen(decorView);
+    }
 
-        return uiFullscreen;
+    /**
+     * Probe fullscreen state of decor view without tracking
+     */
+    static boolean probeInFullscreen(@NonNull View decorView) {
+        return FullscreenTracker.isVisibilityFullscreen(decorView.getSystemUiVisibility())
+                && FullscreenTracker.isLayoutFullscreen(decorView, new int[2]);
     }
 
     /**
@@ -131,16 +128,38 @@ public class DisplayHelper {
     }
 
     /**
-     * Obtain screen physical size in pixel.
+     * Obtain screen size available to app window in pixel, system bars and split-screen excluded.
+     *
+     * @see #obtainScreenSize(Context, Point)
+     * @see #obtainPhysicalScreenSize(Context, Point)
      */
     public static Point obtainScreenSize(@Nullable Context context) {
+        Point size = new Point();
+        obtainScreenSize(context, size);
+        return size;
+    }
+
+    /**
+     * Obtain screen size available to app window in pixel into {@code outSize}, allocation free.
+     * <p>
+     * Computed from current configuration of context, follows configuration changes.
+     */
+    public static void obtainScreenSize(@Nullable Context context, @NonNull Point outSize) {
         Resources res = context != null ? context.getResources() : Resources.getSystem();
         DisplayMetrics displayMetrics = res.getDisplayMetrics();
-        int screenWidthDp = res.getConfiguration().screenWidthDp;
-        int screenHeightDp = res.getConfiguration().screenHeightDp;
+        Configuration config = res.getConfiguration();
+        outSize.set((int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, config.screenWidthDp, displayMetrics),
+                (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, config.screenHeightDp, displayMetrics));
+    }
 
-        return new Point((int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, screenWidthDp, displayMetrics),
-                (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, screenHeightDp, displayMetrics));
+    /**
+     * Obtain physical size of display of context in pixel into {@code outSize}, allocation free.
+     * <p>
+     * Real metrics of display in current rotation, cached until the display or configuration changes.
+     */
+    public static void obtainPhysicalScreenSize(@NonNull Context context, @NonNull Point outSize) {
+        ScreenMetrics metrics = DisplayMetricsCache.get(context);
+        outSize.set(metrics.getWidthPixels(), metrics.getHeightPixels());
     }
 
     /**
@@ -153,36 +172,36 @@ public class DisplayHelper {
 
     /**
      * 查看当前环境是否设置自动亮度
+     * <p>
+     * Cached value is returned while {@link BrightnessObserver} started.
      */
     public static boolean isAutoBrightness(@NonNull Context context) {
-        try {
-            return Settings.System.getInt(context.getContentResolver(),
-                    Settings.System.SCREEN_BRIGHTNESS_MODE) == Settings.System.SCREEN_BRIGHTNESS_MODE_AUTOMATIC;
-        } catch (Settings.SettingNotFoundException e) {
-            e.printStackTrace();
-        }
-        return false;
+        BrightnessObserver observer = BrightnessObserver.peek();
+        return observer != null
+                ? observer.isAutomatic() : BrightnessObserver.queryAutomatic(context.getContentResolver());
     }
 
     /**
      * 获取系统设置屏幕亮度(0-255)
+     * <p>
+     * Cached value is returned while {@link BrightnessObserver} started.
      */
     public static int getScreenBrightness(@NonNull Context context) {
-        int brightnessDef = 255 / 2;
-        ContentResolver resolver = context.getContentResolver();
-        return Settings.System.getInt(resolver, Settings.System.SCREEN_BRIGHTNESS, brightnessDef);
+        BrightnessObserver observer = BrightnessObserver.peek();
+        return observer != null
+                ? observer.getBrightness() : BrightnessObserver.queryBrightness(context.getContentResolver());
     }
 
     /**
      * 获取当前窗口的亮度
+     * <p>
+     * Brightness set by {@link #updateBrightness(Activity, int)} and waiting for next frame is included.
      *
      * @return 0-255
      */
     public static int getScreenBrightness(Activity activity) {
         if (activity != null && activity.getWindow() != null) {
-            Window window = activity.getWindow();
-            WindowManager.LayoutParams winAttrs = window.getAttributes();
-            float winBrightness = winAttrs.screenBrightness;
+            float winBrightness = SystemUiTransaction.pendingScreenBrightness(activity.getWindow());
             return winBrightness >= 0 ? (int) (winBrightness * 255F) : -1;
         }
         return -1;
@@ -190,6 +209,8 @@ public class DisplayHelper {
 
     /**
      * 更改当前 {@link Activity} 窗口亮度
+     * <p>
+     * Applied on next frame together with other System UI changes of the window, see {@link SystemUiTransaction}.
      *
      * @param activity   变更屏幕亮的的活动
      * @param brightness 亮度 0~255
@@ -197,60 +218,78 @@ public class DisplayHelper {
     public static void updateBrightness(Activity activity, int brightness) {
         Window window = activity != null ? activity.getWindow() : null;
         if (window != null) {
-            WindowManager.LayoutParams lp = activity.getWindow().getAttributes();
-            lp.screenBrightness = brightness > 0
-                    ? brightness / 255F : WindowManager.LayoutParams.BRIGHTNESS_OVERRIDE_NONE;
-            activity.getWindow().setAttributes(lp);
+            SystemUiTransaction.of(window)
+                    .setBrightness(brightness)
+                    .commit();
         }
     }
 
+    /**
+     * 渐变 {@link Activity} 窗口亮度
+     *
+     * @param brightness 目标亮度 0~255
+     * @see BrightnessRamp#start(Activity, int, long, android.animation.TimeInterpolator)
+     */
+    @NonNull
+    public static BrightnessRamp rampBrightness(@NonNull Activity activity, int brightness, long durationMillis) {
+        return BrightnessRamp.start(activity, brightness, durationMillis, null);
+    }
+
     /**
      * 隐藏系统 System Ui (状态栏|导航栏)
+     * <p>
+     * Decor view of a window with a {@link SystemUiTransaction} (or of an {@link Activity} context)
+     * is changed on next frame through the transaction, other views immediately.
      *
      * @param view       目标 {@link View}
      * @param fullscreen 全屏标志为 {@code true} 隐藏状态栏
+     * @see #hideSystemUi(Window, boolean)
      */
     public static void hideSystemUi(View view, boolean fullscreen) {
         if (view == null) {
             return;
         }
-        int uiVisibility = view.getSystemUiVisibility();
-        uiVisibility |= View.SYSTEM_UI_FLAG_HIDE_NAVIGATION;
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
-            uiVisibility |= View.SYSTEM_UI_FLAG_LAYOUT_STABLE
-                    | View.SYSTEM_UI_FLAG_LAYOUT_HIDE_NAVIGATION;
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
-                uiVisibility |= View.SYSTEM_UI_FLAG_IMMERSIVE
-                        | View.SYSTEM_UI_FLAG_IMMERSIVE_STICKY;
-            }
-
-            if (fullscreen) {
-                uiVisibility |= View.SYSTEM_UI_FLAG_FULLSCREEN
-                        | View.SYSTEM_UI_FLAG_LAYOUT_FULLSCREEN;
-            }
+        SystemUiTransaction transaction = transactionOfDecor(view);
+        if (transaction != null) {
+            transaction.hideSystemUi(fullscreen).commit();
+            return;
+        }
+        int oldVisibility = view.getSystemUiVisibility();
+        int uiVisibility = oldVisibility | hideSystemUiFlags(fullscreen);
+        if (uiVisibility != oldVisibility) {
+            view.setSystemUiVisibility(uiVisibility);
         }
-        view.setSystemUiVisibility(uiVisibility);
+    }
+
+    /**
+     * 隐藏窗口的系统 System Ui (状态栏|导航栏)
+     * <p>
+     * Applied on next frame together with other System UI changes of the window, see {@link SystemUiTransaction}.
+     *
+     * @param fullscreen 全屏标志为 {@code true} 隐藏状态栏
+     */
+    public static void hideSystemUi(@NonNull Window window, boolean fullscreen) {
+        SystemUiTransaction.of(window)
+                .hideSystemUi(fullscreen)
+                .commit();
     }
 
     /**
      * Make content layout immersive.
+     * <p>
+     * Applied on next frame together with other System UI changes of the window, see {@link SystemUiTransaction}.
      */
     @RequiresApi(Build.VERSION_CODES.KITKAT)
     public static void makeContentImmersive(Activity activity) {
-        Window window = activity.getWindow();
-        window.addFlags(WindowManager.LayoutParams.FLAG_TRANSLUCENT_STATUS);
-
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-            window.getDecorView().setSystemUiVisibility(View.SYSTEM_UI_FLAG_LAYOUT_STABLE
-                    | View.SYSTEM_UI_FLAG_LAYOUT_FULLSCREEN);
-            window.clearFlags(WindowManager.LayoutParams.FLAG_TRANSLUCENT_STATUS);
-            window.addFlags(WindowManager.LayoutParams.FLAG_DRAWS_SYSTEM_BAR_BACKGROUNDS);
-            window.setStatusBarColor(Color.TRANSPARENT);
-        }
+        SystemUiTransaction.of(activity.getWindow())
+                .makeContentImmersive()
+                .commit();
     }
 
     /**
      * 调整系统状态栏色调
+     * <p>
+     * Applied on next frame together with other System UI changes of the window, see {@link SystemUiTransaction}.
      *
      * @param dark light mode
      * @return if system ui stay light mode
@@ -258,25 +297,58 @@ public class DisplayHelper {
     @RequiresApi(Build.VERSION_CODES.KITKAT)
     public static boolean reverseSystemUIStandard(@NonNull Activity activity, boolean dark) {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-            Window window = activity.getWindow();
-            View decorView = window.getDecorView();
-            if (dark) {
-                decorView.setSystemUiVisibility(decorView.getSystemUiVisibility()
-                        | View.SYSTEM_UI_FLAG_LIGHT_STATUS_BAR);
-            } else {
-                int systemUiVisibility = decorView.getSystemUiVisibility();
-                if ((systemUiVisibility & View.SYSTEM_UI_FLAG_LIGHT_STATUS_BAR)
-                        == View.SYSTEM_UI_FLAG_LIGHT_STATUS_BAR) {
-                    decorView.setSystemUiVisibility(systemUiVisibility ^ View.SYSTEM_UI_FLAG_LIGHT_STATUS_BAR);
-                }
-            }
+            SystemUiTransaction.of(activity.getWindow())
+                    .reverseSystemUi(dark)
+                    .commit();
             return dark;
         }
         return false;
     }
 
-    private static int getInternalDimensionSize(Resources res, String key) {
-        int resourceId = res.getIdentifier(key, "dimen", "android");
-        return resourceId > 0 ? res.getDimensionPixelSize(resourceId) : 0;
+    /**
+     * @return transaction of window if view is its decor view, {@code null} otherwise
+     */
+    @Nullable
+    private static SystemUiTransaction transactionOfDecor(@NonNull View view) {
+        if (view.getParent() instanceof View) {
+            return null;
+        }
+        Object tag = view.getTag(R.id.devicecompat_system_ui_transaction);
+        if (tag instanceof SystemUiTransaction) {
+            return (SystemUiTransaction) tag;
+        }
+        // decor context is not the activity since N, transaction of window is found by tag then
+        Context context = view.getContext();
+        while (context instanceof ContextWrapper && !(context instanceof Activity)) {
+            context = ((ContextWrapper) context).getBaseContext();
+        }
+        if (context instanceof Activity) {
+            Window window = ((Activity) context).getWindow();
+            if (window != null && window.peekDecorView() == view) {
+                return SystemUiTransaction.of(window);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * System UI visibility flags to hide status bar and navigation bar
+     */
+    static int hideSystemUiFlags(boolean fullscreen) {
+        int uiVisibility = View.SYSTEM_UI_FLAG_HIDE_NAVIGATION;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            uiVisibility |= View.SYSTEM_UI_FLAG_LAYOUT_STABLE
+                    | View.SYSTEM_UI_FLAG_LAYOUT_HIDE_NAVIGATION;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+                uiVisibility |= View.SYSTEM_UI_FLAG_IMMERSIVE
+                        | View.SYSTEM_UI_FLAG_IMMERSIVE_STICKY;
+            }
+
+            if (fullscreen) {
+                uiVisibility |= View.SYSTEM_UI_FLAG_FULLSCREEN
+                        | View.SYSTEM_UI_FLAG_LAYOUT_FULLSCREEN;
+            }
+        }
+        return uiVisibility;
     }
 }
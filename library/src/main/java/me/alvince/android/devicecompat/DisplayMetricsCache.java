@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.annotation.TargetApi;
+import android.content.ComponentCallbacks;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.Point;
+import android.hardware.display.DisplayManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+import android.util.DisplayMetrics;
+import android.view.Display;
+import android.view.WindowManager;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+
+/**
+ * Cache of {@link ScreenMetrics} per display
+ * <p>
+ * Snapshots are kept in a copy-on-write array readable from any thread without locking,
+ * dropped by {@link DisplayManager.DisplayListener} callbacks of the display and on configuration changes.
+ * Snapshot resolved concurrently with an invalidation is returned but not cached.
+ * <p>
+ * Entries are keyed by {@link Resources} of context (weakly held) so the hot path skips display lookup,
+ * which allocates in framework; contexts on the same display share one snapshot. Configuration of the resources
+ * (density, orientation and width) is kept with the entry and checked on hit, since resources of an activity moved
+ * to another display stay the same object; stale entries are replaced.
+ * Snapshots are resolved from the display and application context only, never from resources of the caller.
+ *
+ * @author alvince.zy@gmail.com
+ */
+final class DisplayMetricsCache implements ComponentCallbacks {
+
+    private static final Entry[] EMPTY = new Entry[0];
+
+    private static final DisplayMetricsCache INSTANCE = new DisplayMetricsCache();
+
+    private volatile Entry[] entries = EMPTY;
+    /**
+     * Bumped on every invalidation
+     */
+    private volatile int generation;
+    private boolean registered;
+    private Context appContext;
+    /**
+     * {@link DisplayCallback} registered since {@link Build.VERSION_CODES#JELLY_BEAN_MR1}
+     */
+    private Object displayCallback;
+
+    private DisplayMetricsCache() {
+    }
+
+    /**
+     * @return metrics of display of context
+     */
+    @NonNull
+    static ScreenMetrics get(@NonNull Context context) {
+        return INSTANCE.obtain(context);
+    }
+
+    /**
+     * Drop every snapshot and unregister callbacks
+     */
+    @VisibleForTesting
+    static void reset() {
+        synchronized (INSTANCE) {
+            INSTANCE.remove(Display.INVALID_DISPLAY);
+            INSTANCE.unregister();
+        }
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+        remove(Display.INVALID_DISPLAY);
+    }
+
+    @Override
+    public void onLowMemory() {
+    }
+
+    private ScreenMetrics obtain(Context context) {
+        Resources res = context.getResources();
+        int generation = this.generation;
+        Entry[] current = entries;
+        for (Entry entry : current) {
+            if (entry.resources.get() == res) {
+                if (entry.matches(res)) {
+                    return entry.metrics;
+                }
+                break;
+            }
+        }
+        Display display = displayOf(context);
+        int displayId = display != null ? display.getDisplayId() : Display.DEFAULT_DISPLAY;
+        ScreenMetrics metrics = null;
+        for (Entry entry : current) {
+            if (entry.metrics.getDisplayId() == displayId) {
+                metrics = entry.metrics;
+                break;
+            }
+        }
+        if (metrics == null) {
+            Context appContext = context.getApplicationContext();
+            metrics = resolve(appContext != null ? appContext : context, display, displayId);
+            register(appContext);
+        }
+        put(res, metrics, generation);
+        return metrics;
+    }
+
+    private synchronized void put(Resources res, ScreenMetrics metrics, int generation) {
+        if (generation != this.generation) {
+            return;
+        }
+        Entry[] current = entries;
+        ArrayList<Entry> updated = new ArrayList<>(current.length + 1);
+        for (Entry entry : current) {
+            Resources cached = entry.resources.get();
+            if (cached == res && entry.matches(res)) {
+                return;
+            }
+            if (cached != null && cached != res) {
+                updated.add(entry);
+            }
+        }
+        updated.add(new Entry(res, metrics));
+        entries = updated.toArray(new Entry[updated.size()]);
+    }
+
+    /**
+     * @param displayId {@link Display#INVALID_DISPLAY} to drop all
+     */
+    private synchronized void remove(int displayId) {
+        generation++;
+        if (displayId == Display.INVALID_DISPLAY) {
+            entries = EMPTY;
+            return;
+        }
+        Entry[] current = entries;
+        ArrayList<Entry> updated = new ArrayList<>(current.length);
+        for (Entry entry : current) {
+            if (entry.metrics.getDisplayId() != displayId && entry.resources.get() != null) {
+                updated.add(entry);
+            }
+        }
+        entries = updated.toArray(new Entry[updated.size()]);
+    }
+
+    private synchronized void register(Context appContext) {
+        if (registered || appContext == null) {
+            return;
+        }
+        appContext.registerComponentCallbacks(this);
+        this.appContext = appContext;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            DisplayManager displayManager = (DisplayManager) appContext.getSystemService(Context.DISPLAY_SERVICE);
+            if (displayManager != null) {
+                DisplayCallback callback = new DisplayCallback(this);
+                displayManager.registerDisplayListener(callback, new Handler(Looper.getMainLooper()));
+                displayCallback = callback;
+            }
+        }
+        registered = true;
+    }
+
+    private synchronized void unregister() {
+        if (appContext != null) {
+            appContext.unregisterComponentCallbacks(this);
+            if (displayCallback != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+                DisplayManager displayManager = (DisplayManager) appContext.getSystemService(Context.DISPLAY_SERVICE);
+                if (displayManager != null) {
+                    displayManager.unregisterDisplayListener((DisplayCallback) displayCallback);
+                }
+            }
+        }
+        appContext = null;
+        displayCallback = null;
+        registered = false;
+    }
+
+    private static Display displayOf(Context context) {
+        WindowManager windowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        return windowManager != null ? windowManager.getDefaultDisplay() : null;
+    }
+
+    /**
+     * @param context application context, or the caller if not available
+     */
+    private static ScreenMetrics resolve(Context context, Display display, int displayId) {
+        if (display != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            // display without adjustments of caller
+            DisplayManager displayManager = (DisplayManager) context.getSystemService(Context.DISPLAY_SERVICE);
+            Display plain = displayManager != null ? displayManager.getDisplay(displayId) : null;
+            if (plain != null) {
+                display = plain;
+            }
+        }
+        DisplayMetrics displayMetrics;
+        if (display != null) {
+            displayMetrics = new DisplayMetrics();
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+                display.getRealMetrics(displayMetrics);
+            } else {
+                display.getMetrics(displayMetrics);
+            }
+        } else {
+            displayMetrics = context.getResources().getDisplayMetrics();
+        }
+        int statusBarSize = 0;
+        int navigationBarSize = 0;
+        Context deviceContext = null;
+        if (displayId == Display.DEFAULT_DISPLAY) {
+            SystemBarCache.Sizes sizes = SystemBarCache.get(context);
+            statusBarSize = sizes.statusBarSize;
+            navigationBarSize = sizes.navigationBarSize(displayMetrics.widthPixels > displayMetrics.heightPixels
+                    ? Configuration.ORIENTATION_LANDSCAPE : Configuration.ORIENTATION_PORTRAIT);
+            // notch of device, window cutout of activity is not kept per display
+            deviceContext = context;
+        }
+        int sizeClass;
+        if (display != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            sizeClass = usableSizeClass(display, displayMetrics.density, statusBarSize);
+        } else {
+            int widthDp = (int) (displayMetrics.widthPixels / displayMetrics.density);
+            int heightDp = (int) (displayMetrics.heightPixels / displayMetrics.density);
+            sizeClass = ScreenMetrics.sizeClass(Math.max(widthDp, heightDp), Math.min(widthDp, heightDp));
+        }
+        return new ScreenMetrics(displayId, displayMetrics.widthPixels, displayMetrics.heightPixels,
+                displayMetrics.densityDpi, displayMetrics.density, sizeClass, statusBarSize, navigationBarSize,
+                deviceContext);
+    }
+
+    /**
+     * Size class of app usable size in both rotations like {@code screenLayout} of framework,
+     * the smaller one is taken.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static int usableSizeClass(Display display, float density, int statusBarSize) {
+        Point smallest = new Point();
+        Point largest = new Point();
+        display.getCurrentSizeRange(smallest, largest);
+        int statusBarDp = (int) (statusBarSize / density);
+        // portrait: smallest width with largest height, landscape: largest width with smallest height
+        int portrait = sizeClassOf((int) (smallest.x / density), (int) (largest.y / density) - statusBarDp);
+        int landscape = sizeClassOf((int) (largest.x / density), (int) (smallest.y / density) - statusBarDp);
+        return Math.min(portrait, landscape);
+    }
+
+    private static int sizeClassOf(int widthDp, int heightDp) {
+        return ScreenMetrics.sizeClass(Math.max(widthDp, heightDp), Math.min(widthDp, heightDp));
+    }
+
+    private static final class Entry {
+        final WeakReference<Resources> resources;
+        final ScreenMetrics metrics;
+        final int densityDpi;
+        final int orientation;
+        final int screenWidthDp;
+
+        Entry(Resources resources, ScreenMetrics metrics) {
+            Configuration config = resources.getConfiguration();
+            this.resources = new WeakReference<>(resources);
+            this.metrics = metrics;
+            this.densityDpi = resources.getDisplayMetrics().densityDpi;
+            this.orientation = config.orientation;
+            this.screenWidthDp = config.screenWidthDp;
+        }
+
+        /**
+         * @return {@code true} if configuration of resources is still the one entry resolved with
+         */
+        boolean matches(Resources res) {
+            Configuration config = res.getConfiguration();
+            return res.getDisplayMetrics().densityDpi == densityDpi
+                    && config.orientation == orientation
+                    && config.screenWidthDp == screenWidthDp;
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+    private static final class DisplayCallback implements DisplayManager.DisplayListener {
+        private final DisplayMetricsCache cache;
+
+        DisplayCallback(DisplayMetricsCache cache) {
+            this.cache = cache;
+        }
+
+        @Override
+        public void onDisplayAdded(int displayId) {
+        }
+
+        @Override
+        public void onDisplayRemoved(int displayId) {
+            cache.remove(displayId);
+        }
+
+        @Override
+        public void onDisplayChanged(int displayId) {
+            cache.remove(displayId);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.os.Build;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.view.View;
+
+/**
+ * Layout state of a decor view used by {@link DisplayHelper#isInFullscreen(android.app.Activity)}
+ * <p>
+ * Screen location and paddings are probed on attach and layout changes only,
+ * System UI visibility is read directly as it costs a field read.
+ *
+ * @author alvince.zy@gmail.com
+ */
+@MainThread
+final class FullscreenTracker implements View.OnLayoutChangeListener, View.OnAttachStateChangeListener {
+
+    private final View decorView;
+    private final int[] location = new int[2];
+
+    private boolean resolved;
+    private boolean layoutFullscreen;
+
+    private FullscreenTracker(View decorView) {
+        this.decorView = decorView;
+        decorView.addOnLayoutChangeListener(this);
+        decorView.addOnAttachStateChangeListener(this);
+    }
+
+    /**
+     * Obtain tracker of decor view, created on first call.
+     */
+    @NonNull
+    static FullscreenTracker of(@NonNull View decorView) {
+        Object tag = decorView.getTag(R.id.devicecompat_fullscreen_tracker);
+        if (tag instanceof FullscreenTracker) {
+            return (FullscreenTracker) tag;
+        }
+        FullscreenTracker tracker = new FullscreenTracker(decorView);
+        decorView.setTag(R.id.devicecompat_fullscreen_tracker, tracker);
+        return tracker;
+    }
+
+    /**
+     * Check whether decor view is laid out fullscreen, probed only until first layout.
+     */
+    boolean isInFullscreen() {
+        if (!isVisibilityFullscreen(decorView.getSystemUiVisibility())) {
+            return false;
+        }
+        if (!resolved) {
+            update();
+        }
+        return layoutFullscreen;
+    }
+
+    @Override
+    public void onLayoutChange(View v, int left, int top, int right, int bottom,
+                               int oldLeft, int oldTop, int oldRight, int oldBottom) {
+        update();
+    }
+
+    @Override
+    public void onViewAttachedToWindow(View v) {
+        update();
+    }
+
+    @Override
+    public void onViewDetachedFromWindow(View v) {
+        resolved = false;
+    }
+
+    private void update() {
+        layoutFullscreen = isLayoutFullscreen(decorView, location);
+        // location stays unknown until attached
+        resolved = decorView.getWindowToken() != null;
+    }
+
+    static boolean isVisibilityFullscreen(int uiVisibility) {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN
+                && (uiVisibility & View.SYSTEM_UI_FLAG_LAYOUT_FULLSCREEN) == View.SYSTEM_UI_FLAG_LAYOUT_FULLSCREEN;
+    }
+
+    /**
+     * @param location reused buffer of screen location
+     */
+    static boolean isLayoutFullscreen(@NonNull View decorView, @NonNull int[] location) {
+        decorView.getLocationOnScreen(location);
+        return location[0] == 0 && location[1] == 0
+                && decorView.getPaddingTop() == 0
+                && decorView.getPaddingBottom() == 0
+                && decorView.getPaddingLeft() == 0
+                && decorView.getPaddingRight() == 0;
+    }
+}
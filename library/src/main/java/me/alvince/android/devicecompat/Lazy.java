@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+/**
+ * Lazily created value safe for concurrent callers
+ * <p>
+ * Value is created exactly once under lock, reads after publication cost one volatile read.
+ *
+ * @author alvince.zy@gmail.com
+ */
+abstract class Lazy<T> {
+
+    private volatile T value;
+
+    @NonNull
+    final T get() {
+        T result = value;
+        if (result == null) {
+            synchronized (this) {
+                result = value;
+                if (result == null) {
+                    result = create();
+                    value = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return created value, {@code null} if not yet
+     */
+    @Nullable
+    final T peek() {
+        return value;
+    }
+
+    /**
+     * Drop created value, next {@link #get()} creates it again
+     */
+    @VisibleForTesting
+    final synchronized void reset() {
+        value = null;
+    }
+
+    /**
+     * Create value, called at most once
+     */
+    @NonNull
+    protected abstract T create();
+}
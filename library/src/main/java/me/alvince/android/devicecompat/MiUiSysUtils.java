@@ -28,6 +28,9 @@ import android.view.Window;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 
+import me.alvince.android.devicecompat.ReflectionRegistry.FieldRef;
+import me.alvince.android.devicecompat.ReflectionRegistry.MethodRef;
+
 /**
  * Created by alvince on 2017/5/16.
  *
@@ -35,14 +38,22 @@ import java.lang.reflect.Method;
  */
 class MiUiSysUtils {
 
-    private static final String MIUI_INCREMENTAL_DARK_SYSUI_DEPRECATED = "7.7.13";
+    static final int MIUI_VERSION_SYSUI_STANDARD = 9;
+
+    private static final int MIUI_INCREMENTAL_DARK_SYSUI_DEPRECATED = RomVersion.pack(7, 7, 13);
 
-    private static final String KEY_BUILD_VERSION_INCREMENTAL = "ro.build.version.incremental";
-    private static final String KEY_MIUI_INTERNAL_STORAGE = "ro.miui.internal.storage";
-    private static final String KEY_MIUI_VERSION_CODE = "ro.miui.ui.version.code";
-    private static final String KEY_MIUI_VERSION_NAME = "ro.miui.ui.version.name";
+    static final String KEY_BUILD_VERSION_INCREMENTAL = "ro.build.version.incremental";
+    static final String KEY_MIUI_INTERNAL_STORAGE = "ro.miui.internal.storage";
+    static final String KEY_MIUI_VERSION_CODE = "ro.miui.ui.version.code";
+    static final String KEY_MIUI_VERSION_NAME = "ro.miui.ui.version.name";
+
+    private static final FieldRef EXTRA_FLAG_STATUS_BAR_DARK_MODE =
+            new FieldRef("android.view.MiuiWindowManager$LayoutParams", "EXTRA_FLAG_STATUS_BAR_DARK_MODE");
+    private static final MethodRef SET_EXTRA_FLAGS = new MethodRef(Window.class, "setExtraFlags", int.class, int.class);
 
     private DeviceHelper.BuildProperties props;
+    private volatile int miuiVersion = -1;
+    private volatile int incrementalVersion = -1;
 
     public MiUiSysUtils(DeviceHelper.BuildProperties props) {
         this.props = props;
@@ -54,13 +65,15 @@ class MiUiSysUtils {
      * @see <a href="https://dev.mi.com/doc/p=10416/index.html">https://dev.mi.com/doc/p=10416/index.html</a>
      */
     public static boolean setStatusBarDarkMode(boolean darkMode, Activity activity) {
-        Class<? extends Window> clazz = activity.getWindow().getClass();
+        Window window = activity.getWindow();
+        Field field = EXTRA_FLAG_STATUS_BAR_DARK_MODE.get();
+        Method extraFlagField = SET_EXTRA_FLAGS.get(window.getClass());
+        if (field == null || extraFlagField == null) {
+            return false;
+        }
         try {
-            Class<?> layoutParams = Class.forName("android.view.MiuiWindowManager$LayoutParams");
-            Field field = layoutParams.getField("EXTRA_FLAG_STATUS_BAR_DARK_MODE");
-            int darkModeFlag = field.getInt(layoutParams);
-            Method extraFlagField = clazz.getMethod("setExtraFlags", int.class, int.class);
-            extraFlagField.invoke(activity.getWindow(), darkMode ? darkModeFlag : 0, darkModeFlag);
+            int darkModeFlag = field.getInt(null);
+            extraFlagField.invoke(window, darkMode ? darkModeFlag : 0, darkModeFlag);
             return true;
         } catch (Exception e) {
             e.printStackTrace();
@@ -69,11 +82,13 @@ class MiUiSysUtils {
     }
 
     /**
-     * @return MIUI Version. e.g, V8
+     * @return MIUI Version. e.g, V8, {@code 0} if unknown
      */
     public int getMIUIVersion() {
-        String version = props.getProperty(KEY_MIUI_VERSION_NAME);
-        return Integer.parseInt(version.substring(1));
+        if (miuiVersion < 0) {
+            miuiVersion = Math.max(RomVersion.major(RomVersion.parse(props.getProperty(KEY_MIUI_VERSION_NAME))), 0);
+        }
+        return miuiVersion;
     }
 
     public String getMIUIVerCode() {
@@ -85,52 +100,19 @@ class MiUiSysUtils {
     }
 
     public boolean isSupportSysUiModeStandard() {
-        if (getMIUIVersion() >= 9) {
-            return true;
-        }
-        MIUIIncrementalVersion v = new MIUIIncrementalVersion(getMIUIVerIncremental());
-        return v.compare(MIUI_INCREMENTAL_DARK_SYSUI_DEPRECATED) >= 0;
+        return isSupportSysUiModeStandard(getMIUIVersion());
     }
 
-
-    /*
-     * MIUI version
-     * e.g, x.x.x
+    /**
+     * @param miuiVersion resolved MIUI version, see {@link #getMIUIVersion()}
      */
-    private static class MIUIIncrementalVersion {
-        int fst, sec, thd;
-
-        MIUIIncrementalVersion(String version) {
-            if (version.matches("\\d+.\\d+.\\d+")) {
-                String[] incremental = version.split("\\.");
-                int[] code = new int[incremental.length];
-                for (int i = 0; i < incremental.length; i++) {
-                    code[i] = Integer.parseInt(incremental[i]);
-                }
-                fst = code[0];
-                sec = code[1];
-                thd = code[2];
-            }
-        }
-
-        int compare(String incremental) {
-            return compare(new MIUIIncrementalVersion(incremental));
+    public boolean isSupportSysUiModeStandard(int miuiVersion) {
+        if (miuiVersion >= MIUI_VERSION_SYSUI_STANDARD) {
+            return true;
         }
-
-        int compare(MIUIIncrementalVersion v) {
-            if (fst == v.fst) {
-                if (sec == v.sec) {
-                    if (thd == v.thd) {
-                        return 0;
-                    } else {
-                        return thd > v.thd ? 1 : -1;
-                    }
-                } else {
-                    return sec > v.sec ? 1 : -1;
-                }
-            } else {
-                return fst > v.fst ? 1 : -1;
-            }
+        if (incrementalVersion < 0) {
+            incrementalVersion = RomVersion.parseStrict(getMIUIVerIncremental());
         }
+        return incrementalVersion >= MIUI_INCREMENTAL_DARK_SYSUI_DEPRECATED;
     }
 }
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.DisplayCutout;
+import android.view.View;
+import android.view.Window;
+import android.view.WindowInsets;
+
+import java.util.ArrayList;
+
+/**
+ * Notch geometry of a window read from {@link DisplayCutout}
+ * <p>
+ * Cutout is read from root window insets once the window is attached and again on every layout change,
+ * e.g. rotation or multi-window resize, listeners are notified only when geometry changes.
+ * Always reports no notch below {@link Build.VERSION_CODES#P}.
+ * <pre>
+ *     NotchTracker.of(getWindow()).addOnNotchChangedListener(new NotchTracker.OnNotchChangedListener() {
+ *         public void onNotchChanged(NotchTracker tracker) {
+ *             header.setPadding(0, tracker.getSafeInsetTop(), 0, 0);
+ *         }
+ *     });
+ * </pre>
+ *
+ * @author alvince.zy@gmail.com
+ */
+@MainThread
+public final class NotchTracker {
+
+    public interface OnNotchChangedListener {
+        /**
+         * Called on main thread when cutout of window changes
+         */
+        void onNotchChanged(@NonNull NotchTracker tracker);
+    }
+
+    private final View decorView;
+    private final ArrayList<OnNotchChangedListener> listeners = new ArrayList<>(2);
+
+    private boolean resolved;
+    private boolean hasNotch;
+    private int safeInsetLeft;
+    private int safeInsetTop;
+    private int safeInsetRight;
+    private int safeInsetBottom;
+
+    private NotchTracker(View decorView) {
+        this.decorView = decorView;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            decorView.addOnLayoutChangeListener(new View.OnLayoutChangeListener() {
+                @Override
+                public void onLayoutChange(View v, int left, int top, int right, int bottom,
+                                           int oldLeft, int oldTop, int oldRight, int oldBottom) {
+                    update();
+                }
+            });
+            decorView.addOnAttachStateChangeListener(new View.OnAttachStateChangeListener() {
+                @Override
+                public void onViewAttachedToWindow(View v) {
+                    update();
+                }
+
+                @Override
+                public void onViewDetachedFromWindow(View v) {
+                }
+            });
+            update();
+        } else {
+            resolved = true;
+        }
+    }
+
+    /**
+     * Obtain tracker of window, created and attached to decor view on first call.
+     */
+    @NonNull
+    public static NotchTracker of(@NonNull Window window) {
+        View decorView = window.getDecorView();
+        Object tag = decorView.getTag(R.id.devicecompat_notch_tracker);
+        if (tag instanceof NotchTracker) {
+            return (NotchTracker) tag;
+        }
+        NotchTracker tracker = new NotchTracker(decorView);
+        decorView.setTag(R.id.devicecompat_notch_tracker, tracker);
+        return tracker;
+    }
+
+    /**
+     * Tracker already attached to window, decor view is never installed here.
+     */
+    @Nullable
+    static NotchTracker peek(@NonNull Window window) {
+        View decorView = window.peekDecorView();
+        Object tag = decorView != null ? decorView.getTag(R.id.devicecompat_notch_tracker) : null;
+        return tag instanceof NotchTracker ? (NotchTracker) tag : null;
+    }
+
+    /**
+     * @return {@code true} once insets of the attached window have been read
+     */
+    public boolean isResolved() {
+        return resolved;
+    }
+
+    /**
+     * @return if window overlaps a display cutout
+     */
+    public boolean hasNotch() {
+        return hasNotch;
+    }
+
+    /**
+     * Depth of the cutout, the largest safe inset regardless of orientation
+     */
+    public int getNotchHeight() {
+        return Math.max(Math.max(safeInsetLeft, safeInsetRight), Math.max(safeInsetTop, safeInsetBottom));
+    }
+
+    public int getSafeInsetLeft() {
+        return safeInsetLeft;
+    }
+
+    public int getSafeInsetTop() {
+        return safeInsetTop;
+    }
+
+    public int getSafeInsetRight() {
+        return safeInsetRight;
+    }
+
+    public int getSafeInsetBottom() {
+        return safeInsetBottom;
+    }
+
+    public void addOnNotchChangedListener(@NonNull OnNotchChangedListener listener) {
+        if (!listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    public void removeOnNotchChangedListener(@NonNull OnNotchChangedListener listener) {
+        listeners.remove(listener);
+    }
+
+    @TargetApi(Build.VERSION_CODES.P)
+    private void update() {
+        WindowInsets insets = decorView.getRootWindowInsets();
+        if (insets == null) {  // not attached yet
+            return;
+        }
+        DisplayCutout cutout = insets.getDisplayCutout();
+        boolean hasNotch = cutout != null;
+        int left = hasNotch ? cutout.getSafeInsetLeft() : 0;
+        int top = hasNotch ? cutout.getSafeInsetTop() : 0;
+        int right = hasNotch ? cutout.getSafeInsetRight() : 0;
+        int bottom = hasNotch ? cutout.getSafeInsetBottom() : 0;
+        boolean changed = !resolved || this.hasNotch != hasNotch
+                || safeInsetLeft != left || safeInsetTop != top
+                || safeInsetRight != right || safeInsetBottom != bottom;
+        if (!changed) {
+            return;
+        }
+        resolved = true;
+        this.hasNotch = hasNotch;
+        safeInsetLeft = left;
+        safeInsetTop = top;
+        safeInsetRight = right;
+        safeInsetBottom = bottom;
+        for (int i = listeners.size() - 1; i >= 0; i--) {
+            listeners.get(i).onNotchChanged(this);
+        }
+    }
+}
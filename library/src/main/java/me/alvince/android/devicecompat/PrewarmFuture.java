@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Completion of {@link DeviceHelper#prewarm} composed by several independent probes
+ *
+ * @author alvince.zy@gmail.com
+ */
+final class PrewarmFuture implements Future<Void> {
+
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private final AtomicInteger pending;
+    private final DeviceHelper.OnPrewarmListener listener;
+
+    private volatile Throwable failure;
+
+    PrewarmFuture(int parts, @Nullable DeviceHelper.OnPrewarmListener listener) {
+        this.pending = new AtomicInteger(parts);
+        this.listener = listener;
+    }
+
+    /**
+     * Mark one probe finished, listener is notified on thread of the last one.
+     * Completion is decided under the same lock as {@link #fail(Throwable)}, so success is never reported
+     * alongside a failure.
+     */
+    void partDone() {
+        synchronized (this) {
+            if (pending.decrementAndGet() != 0 || failure != null) {
+                return;
+            }
+            latch.countDown();
+        }
+        if (listener != null) {
+            listener.onPrewarmed();
+        }
+    }
+
+    /**
+     * Complete with failure of a probe or of scheduling, listener is not notified.
+     *
+     * @return {@code false} if already completed
+     */
+    boolean fail(@NonNull Throwable cause) {
+        synchronized (this) {
+            if (failure != null || isDone()) {
+                return false;
+            }
+            failure = cause;
+            latch.countDown();
+        }
+        return true;
+    }
+
+    /**
+     * Wait for prewarm to finish at most specified time
+     *
+     * @return {@code true} if prewarm finished
+     */
+    boolean await(long timeoutMillis) {
+        try {
+            return latch.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return isDone();
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return false;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return false;
+    }
+
+    @Override
+    public boolean isDone() {
+        return latch.getCount() == 0;
+    }
+
+    @Override
+    public Void get() throws InterruptedException, ExecutionException {
+        latch.await();
+        return result();
+    }
+
+    @Override
+    public Void get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!latch.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return result();
+    }
+
+    private Void result() throws ExecutionException {
+        Throwable cause = failure;
+        if (cause != null) {
+            throw new ExecutionException(cause);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.content.Context;
+import android.content.res.AssetManager;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Device quirk table compiled at build time from {@code src/main/quirks/device_quirks.txt}
+ * <p>
+ * Asset is read into one heap buffer on first use, aapt compresses it so it can not be memory-mapped.
+ * Vendor probes stay as fallback of devices not declared. Keys are located by a minimal
+ * perfect hash then verified, every lookup is O(1) without allocation. Hashing must stay in sync with
+ * {@code QuirkCompiler} of buildSrc.
+ *
+ * @author alvince.zy@gmail.com
+ */
+final class QuirkDatabase {
+
+    static final String ASSET_NAME = "devicecompat/quirks.bin";
+
+    static final int FLAG_NOTCH = 1;
+    static final int FLAG_NO_NOTCH = 1 << 1;
+    static final int FLAG_NOTCH_HEIGHT_PX = 1 << 2;
+    static final int FLAG_NOTCH_HEIGHT_DP = 1 << 3;
+    static final int FLAG_NOTCH_HEIGHT_STATUS_BAR = 1 << 4;
+
+    private static final int FLAGS_NOTCH_STATE = FLAG_NOTCH | FLAG_NO_NOTCH;
+    private static final int FLAGS_NOTCH_HEIGHT = FLAG_NOTCH_HEIGHT_PX | FLAG_NOTCH_HEIGHT_DP | FLAG_NOTCH_HEIGHT_STATUS_BAR;
+
+    static final String KEY_DEVICE = "device";
+    static final String KEY_MODEL = "model";
+    static final String KEY_MANUFACTURER = "manufacturer";
+    static final String KEY_BRAND = "brand";
+
+    private static final int MAGIC = 0x4443514B;  // DCQK
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+
+    private static final int FNV_OFFSET = 0x811C9DC5;
+    private static final int FNV_PRIME = 0x01000193;
+    /**
+     * Hash of keys containing non-ascii chars, never stored
+     */
+    private static final int HASH_INVALID = -1;
+
+    private static final String TAG = "QuirkDatabase";
+
+    static final QuirkDatabase EMPTY = new QuirkDatabase(null);
+
+    private static final DeviceQuirks NO_QUIRKS = new DeviceQuirks(0, 0);
+
+    private static volatile QuirkDatabase instance;
+
+    private final ByteBuffer buffer;
+    private final int count;
+    private final int bucketCount;
+
+    private volatile DeviceQuirks deviceQuirks;
+
+    QuirkDatabase(@Nullable ByteBuffer buffer) {
+        if (buffer != null && buffer.capacity() >= HEADER_SIZE
+                && buffer.getInt(0) == MAGIC && buffer.getInt(4) == FORMAT_VERSION) {
+            this.buffer = buffer;
+            this.count = buffer.getInt(8);
+            this.bucketCount = buffer.getInt(12);
+        } else {
+            this.buffer = null;
+            this.count = 0;
+            this.bucketCount = 0;
+        }
+    }
+
+    /**
+     * Database packaged in assets, loaded once
+     *
+     * @param context {@code null} to get {@link #EMPTY} if not loaded yet
+     */
+    @NonNull
+    static QuirkDatabase get(@Nullable Context context) {
+        QuirkDatabase database = instance;
+        if (database == null) {
+            if (context == null) {
+                return EMPTY;
+            }
+            synchronized (QuirkDatabase.class) {
+                database = instance;
+                if (database == null) {
+                    database = new QuirkDatabase(load(context.getAssets()));
+                    instance = database;
+                }
+            }
+        }
+        return database;
+    }
+
+    /**
+     * Drop loaded database, asset is loaded again on next {@link #get(Context)}
+     */
+    @VisibleForTesting
+    static synchronized void reset() {
+        instance = null;
+    }
+
+    /**
+     * Quirks of current device merged by key precedence, resolved once
+     */
+    @NonNull
+    DeviceQuirks deviceQuirks() {
+        if (count == 0) {
+            return NO_QUIRKS;
+        }
+        DeviceQuirks quirks = deviceQuirks;
+        if (quirks == null) {
+            int[] records = {
+                    find(KEY_DEVICE, Build.DEVICE),
+                    find(KEY_MODEL, Build.MODEL),
+                    find(KEY_MANUFACTURER, Build.MANUFACTURER),
+                    find(KEY_BRAND, Build.BRAND)
+            };
+            int notchState = 0;
+            int heightFlag = 0;
+            int height = 0;
+            for (int record : records) {
+                if (record < 0) {
+                    continue;
+                }
+                int flags = flags(record);
+                if (notchState == 0) {
+                    notchState = flags & FLAGS_NOTCH_STATE;
+                }
+                if (heightFlag == 0 && (flags & FLAGS_NOTCH_HEIGHT) != 0) {
+                    heightFlag = flags & FLAGS_NOTCH_HEIGHT;
+                    height = notchHeight(record);
+                }
+            }
+            quirks = new DeviceQuirks(notchState | heightFlag, height);
+            deviceQuirks = quirks;
+        }
+        return quirks;
+    }
+
+    /**
+     * Locate record of key
+     *
+     * @param type  one of {@code KEY_*}
+     * @param value matched case-insensitively
+     * @return offset of record, {@code -1} if not found
+     */
+    int find(@NonNull String type, @Nullable String value) {
+        if (count == 0 || value == null) {
+            return -1;
+        }
+        int h = hash(type, value, 0);
+        if (h == HASH_INVALID) {
+            return -1;
+        }
+        int seed = buffer.getInt(HEADER_SIZE + 4 * (h % bucketCount));
+        int slot = hash(type, value, seed) % count;
+        int record = buffer.getInt(HEADER_SIZE + 4 * bucketCount + 4 * slot);
+        return matches(record, type, value) ? record : -1;
+    }
+
+    int flags(int record) {
+        return buffer.getInt(record + 2 + buffer.getShort(record));
+    }
+
+    int notchHeight(int record) {
+        return buffer.getInt(record + 6 + buffer.getShort(record));
+    }
+
+    private boolean matches(int record, String type, String value) {
+        int length = buffer.getShort(record);
+        if (length != type.length() + 1 + value.length()) {
+            return false;
+        }
+        int offset = record + 2;
+        for (int i = 0; i < type.length(); i++) {
+            if (buffer.get(offset++) != type.charAt(i)) {
+                return false;
+            }
+        }
+        if (buffer.get(offset++) != ':') {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (buffer.get(offset++) != toLower(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Seeded FNV-1a of {@code type:value} with value lower-cased, murmur3 finalized
+     */
+    private static int hash(String type, String value, int seed) {
+        int h = FNV_OFFSET ^ seed;
+        for (int i = 0; i < type.length(); i++) {
+            h ^= type.charAt(i);
+            h *= FNV_PRIME;
+        }
+        h ^= ':';
+        h *= FNV_PRIME;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c > 0x7F) {
+                return HASH_INVALID;
+            }
+            h ^= toLower(c);
+            h *= FNV_PRIME;
+        }
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h & 0x7FFFFFFF;
+    }
+
+    private static char toLower(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    @Nullable
+    private static ByteBuffer load(AssetManager assets) {
+        InputStream is = null;
+        try {
+            is = assets.open(ASSET_NAME, AssetManager.ACCESS_BUFFER);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(is.available(), 256));
+            byte[] buffer = new byte[1024];
+            int count;
+            while ((count = is.read(buffer)) != -1) {
+                bytes.write(buffer, 0, count);
+            }
+            return ByteBuffer.wrap(bytes.toByteArray());
+        } catch (IOException e) {
+            L.e(TAG, "Load quirk database error", e);
+            return null;
+        } finally {
+            if (is != null) {
+                try {
+                    is.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Merged quirks of current device
+     */
+    static final class DeviceQuirks {
+        final int flags;
+        private final int notchHeight;
+
+        DeviceQuirks(int flags, int notchHeight) {
+            this.flags = flags;
+            this.notchHeight = notchHeight;
+        }
+
+        /**
+         * @return one of {@link DeviceProfile#NOTCH_UNKNOWN}, {@link DeviceProfile#NOTCH_ABSENT} and
+         * {@link DeviceProfile#NOTCH_PRESENT}
+         */
+        int notchState() {
+            if ((flags & FLAG_NOTCH) != 0) {
+                return DeviceProfile.NOTCH_PRESENT;
+            }
+            return (flags & FLAG_NO_NOTCH) != 0 ? DeviceProfile.NOTCH_ABSENT : DeviceProfile.NOTCH_UNKNOWN;
+        }
+
+        /**
+         * @return notch height in px, {@code -1} if not defined
+         */
+        float notchHeight(@NonNull Context context) {
+            if ((flags & FLAG_NOTCH_HEIGHT_PX) != 0) {
+                return notchHeight;
+            }
+            if ((flags & FLAG_NOTCH_HEIGHT_DP) != 0) {
+                return DisplayHelper.fromDip(context, notchHeight);
+            }
+            if ((flags & FLAG_NOTCH_HEIGHT_STATUS_BAR) != 0) {
+                return DisplayHelper.getStatusBarSize(context);
+            }
+            return -1F;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.RestrictTo;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of reflection handles used by vendor hooks
+ * <p>
+ * Every class, method and field is resolved once, failed lookups are remembered as well
+ * so later calls never construct {@link ClassNotFoundException} or {@link NoSuchMethodException} again.
+ *
+ * @author alvince.zy@gmail.com
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY)
+public final class ReflectionRegistry {
+
+    private static final String TAG = "ReflectionRegistry";
+
+    private static final Object MISSING = new Object();
+    private static final ConcurrentHashMap<String, Object> CLASSES = new ConcurrentHashMap<>();
+
+    private ReflectionRegistry() {
+    }
+
+    /**
+     * Find class by name
+     *
+     * @return {@code null} if class not exists
+     */
+    @Nullable
+    public static Class<?> findClass(@NonNull String className) {
+        Object cached = CLASSES.get(className);
+        boolean hit = cached != null;
+        if (!hit) {
+            try {
+                cached = Class.forName(className);
+            } catch (ClassNotFoundException | LinkageError e) {
+                L.d(TAG, "Class not found: " + className);
+                cached = MISSING;
+            }
+            Object previous = CLASSES.putIfAbsent(className, cached);
+            if (previous != null) {
+                cached = previous;
+            }
+        }
+        report(className, null, hit, cached);
+        return cached != MISSING ? (Class<?>) cached : null;
+    }
+
+    private static void report(String className, String member, boolean hit, Object cached) {
+        DeviceCompatMetrics metrics = DeviceHelper.metrics();
+        if (metrics != null) {
+            metrics.onReflection(className, member, hit, cached != MISSING);
+        }
+    }
+
+    private static Object resolveMethod(Class<?> owner, String name, Class<?>[] parameterTypes) {
+        try {
+            return owner.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException ignored) {
+            // fallback to non-public declared method
+        } catch (SecurityException | LinkageError e) {
+            return MISSING;
+        }
+        try {
+            Method method = owner.getDeclaredMethod(name, parameterTypes);
+            method.setAccessible(true);
+            return method;
+        } catch (NoSuchMethodException | SecurityException | LinkageError e) {
+            L.d(TAG, "Method not found: " + owner.getName() + "#" + name);
+            return MISSING;
+        }
+    }
+
+    private static Object resolveField(Class<?> owner, String name) {
+        try {
+            return owner.getField(name);
+        } catch (NoSuchFieldException ignored) {
+            // fallback to non-public declared field
+        } catch (SecurityException | LinkageError e) {
+            return MISSING;
+        }
+        try {
+            Field field = owner.getDeclaredField(name);
+            field.setAccessible(true);
+            return field;
+        } catch (NoSuchFieldException | SecurityException | LinkageError e) {
+            L.d(TAG, "Field not found: " + owner.getName() + "#" + name);
+            return MISSING;
+        }
+    }
+
+    /**
+     * Lazily resolved method handle, public methods are preferred over declared ones
+     */
+    public static final class MethodRef {
+        private final String className;
+        private final Class<?> owner;
+        private final String name;
+        private final Class<?>[] parameterTypes;
+        private final ConcurrentHashMap<Class<?>, Object> receivers = new ConcurrentHashMap<>(2);
+
+        private volatile Object resolved;
+
+        public MethodRef(@NonNull String className, @NonNull String name, Class<?>... parameterTypes) {
+            this.className = className;
+            this.owner = null;
+            this.name = name;
+            this.parameterTypes = parameterTypes;
+        }
+
+        public MethodRef(@NonNull Class<?> owner, @NonNull String name, Class<?>... parameterTypes) {
+            this.className = owner.getName();
+            this.owner = owner;
+            this.name = name;
+            this.parameterTypes = parameterTypes;
+        }
+
+        /**
+         * @return method of the declaring class, {@code null} if not exists
+         */
+        @Nullable
+        public Method get() {
+            Object cached = resolved;
+            boolean hit = cached != null;
+            if (!hit) {
+                Class<?> clazz = owner != null ? owner : findClass(className);
+                cached = clazz != null ? resolveMethod(clazz, name, parameterTypes) : MISSING;
+                resolved = cached;
+            }
+            report(className, name, hit, cached);
+            return cached != MISSING ? (Method) cached : null;
+        }
+
+        /**
+         * Lookup method on the runtime class of receiver, e.g. vendor subclass of {@link android.view.Window}
+         *
+         * @return method of the specified class, {@code null} if not exists
+         */
+        @Nullable
+        public Method get(@NonNull Class<?> receiverClass) {
+            if (receiverClass == owner) {
+                return get();
+            }
+            Object cached = receivers.get(receiverClass);
+            boolean hit = cached != null;
+            if (!hit) {
+                cached = resolveMethod(receiverClass, name, parameterTypes);
+                receivers.putIfAbsent(receiverClass, cached);
+            }
+            DeviceCompatMetrics metrics = DeviceHelper.metrics();
+            if (metrics != null) {
+                metrics.onReflection(receiverClass.getName(), name, hit, cached != MISSING);
+            }
+            return cached != MISSING ? (Method) cached : null;
+        }
+    }
+
+    /**
+     * Lazily resolved field handle, public fields are preferred over declared ones
+     */
+    public static final class FieldRef {
+        private final String className;
+        private final Class<?> owner;
+        private final String name;
+
+        private volatile Object resolved;
+
+        public FieldRef(@NonNull String className, @NonNull String name) {
+            this.className = className;
+            this.owner = null;
+            this.name = name;
+        }
+
+        public FieldRef(@NonNull Class<?> owner, @NonNull String name) {
+            this.className = owner.getName();
+            this.owner = owner;
+            this.name = name;
+        }
+
+        /**
+         * @return field of the declaring class, {@code null} if not exists
+         */
+        @Nullable
+        public Field get() {
+            Object cached = resolved;
+            boolean hit = cached != null;
+            if (!hit) {
+                Class<?> clazz = owner != null ? owner : findClass(className);
+                cached = clazz != null ? resolveField(clazz, name) : MISSING;
+                resolved = cached;
+            }
+            report(className, name, hit, cached);
+            return cached != MISSING ? (Field) cached : null;
+        }
+    }
+}
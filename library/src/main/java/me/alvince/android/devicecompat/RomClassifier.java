@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+
+import me.alvince.android.devicecompat.ReflectionRegistry.MethodRef;
+
+import static me.alvince.android.devicecompat.DeviceHelper.ROM_HUAWEI_EMUI;
+import static me.alvince.android.devicecompat.DeviceHelper.ROM_MEIZU_FLYME;
+import static me.alvince.android.devicecompat.DeviceHelper.ROM_ONEPLUS;
+import static me.alvince.android.devicecompat.DeviceHelper.ROM_OPPO;
+import static me.alvince.android.devicecompat.DeviceHelper.ROM_VIVO;
+import static me.alvince.android.devicecompat.DeviceHelper.ROM_XIAOMI_MIUI;
+
+/**
+ * Single pass classifier of device rom
+ * <p>
+ * {@link Build} fields and build properties are read once, every rom is checked together.
+ *
+ * @author alvince.zy@gmail.com
+ */
+final class RomClassifier {
+
+    static final String PROP_BUILD_OPPO_VERSION = "ro.build.version.opporom";
+    static final String PROP_BUILD_VIVO_VERSION = "ro.vivo.os.version";
+    static final String PROP_HUAWEI_BUILD_EMUI_VERSION = "ro.build.version.emui";
+    static final String PROP_HUAWEI_CONF_SYS_VERSION = "ro.confg.hw_systemversion";
+
+    /**
+     * Roms in order of matching priority
+     */
+    private static final String[] ROMS = {
+            ROM_HUAWEI_EMUI,
+            ROM_ONEPLUS,
+            ROM_OPPO,
+            ROM_VIVO,
+            ROM_XIAOMI_MIUI,
+            ROM_MEIZU_FLYME
+    };
+
+    private static final MethodRef BUILD_HAS_SMART_BAR = new MethodRef(Build.class, "hasSmartBar");
+
+    private RomClassifier() {
+    }
+
+    @NonNull
+    static Result classify(@NonNull DeviceHelper.BuildProperties props) {
+        String brand = Build.BRAND;
+        String[] values = props.getProperties(PROP_HUAWEI_BUILD_EMUI_VERSION,
+                PROP_BUILD_OPPO_VERSION, PROP_BUILD_VIVO_VERSION, PROP_HUAWEI_CONF_SYS_VERSION);
+        String emuiVersion = values[0];
+        String oppoVersion = values[1];
+        String vivoVersion = values[2];
+
+        int matches = 0;
+        if (!TextUtils.isEmpty(emuiVersion)
+                || !TextUtils.isEmpty(values[3])
+                || TextUtils.equals("HUAWEI", brand)) {
+            matches |= flagOf(ROM_HUAWEI_EMUI);
+        }
+        if ("OnePlus".equals(brand)) {
+            matches |= flagOf(ROM_ONEPLUS);
+        }
+        if (!TextUtils.isEmpty(oppoVersion) || "OPPO".equalsIgnoreCase(brand)) {
+            matches |= flagOf(ROM_OPPO);
+        }
+        if (!TextUtils.isEmpty(vivoVersion) || "VIVO".equalsIgnoreCase(brand)) {
+            matches |= flagOf(ROM_VIVO);
+        }
+        // see > https://dev.mi.com/docs/appsmarket/technical_docs/system&device_identification
+        if (TextUtils.equals(Build.MANUFACTURER, "Xiaomi")) {
+            matches |= flagOf(ROM_XIAOMI_MIUI);
+        }
+        if (BUILD_HAS_SMART_BAR.get() != null) {
+            matches |= flagOf(ROM_MEIZU_FLYME);
+        }
+
+        String rom = romOf(matches);
+        String version;
+        switch (rom) {
+            case ROM_HUAWEI_EMUI:
+                version = emuiVersion;
+                break;
+            case ROM_OPPO:
+                version = oppoVersion;
+                break;
+            case ROM_VIVO:
+                version = vivoVersion;
+                break;
+            case ROM_XIAOMI_MIUI:
+                version = props.getProperty(MiUiSysUtils.KEY_MIUI_VERSION_NAME);
+                break;
+            case ROM_MEIZU_FLYME:
+                version = Build.DISPLAY;
+                break;
+            default:
+                version = null;
+                break;
+        }
+        return new Result(matches, version);
+    }
+
+    /**
+     * @return flag bit of rom, {@code 0} for unknown rom
+     */
+    static int flagOf(@Nullable String rom) {
+        if (rom != null) {
+            for (int i = 0; i < ROMS.length; i++) {
+                if (ROMS[i].equals(rom)) {
+                    return 1 << i;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return rom of the highest priority in matches, empty if none
+     */
+    @NonNull
+    static String romOf(int matches) {
+        for (int i = 0; i < ROMS.length; i++) {
+            if ((matches & (1 << i)) != 0) {
+                return ROMS[i];
+            }
+        }
+        return "";
+    }
+
+    static final class Result {
+        /**
+         * Flags of all matched roms, see {@link #flagOf(String)}
+         */
+        final int matches;
+        /**
+         * Rom of the highest priority, empty for generic devices
+         */
+        final String rom;
+        final String version;
+        /**
+         * Packed {@link #version}, see {@link RomVersion}
+         */
+        final int versionCode;
+
+        Result(int matches, @Nullable String version) {
+            this.matches = matches;
+            this.rom = romOf(matches);
+            this.version = version;
+            this.versionCode = RomVersion.parse(version);
+        }
+
+        boolean matches(@Nullable String rom) {
+            return (matches & flagOf(rom)) != 0;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.support.annotation.Nullable;
+
+/**
+ * Packed rom version, comparable as plain int
+ * <p>
+ * Three parts {@code major.minor.patch} are packed into 10 bits each, e.g. {@code pack(7, 7, 13)} for MIUI 7.7.13.
+ * Parsing walks the chars once without regex or allocation.
+ *
+ * @author alvince.zy@gmail.com
+ */
+public final class RomVersion {
+
+    /**
+     * Unknown or unparsable version, less than any valid one
+     */
+    public static final int UNKNOWN = -1;
+
+    private static final int PART_BITS = 10;
+    private static final int PART_MAX = (1 << PART_BITS) - 1;
+
+    private RomVersion() {
+    }
+
+    /**
+     * Pack version parts, each part is clamped to {@code [0, 1023]}
+     */
+    public static int pack(int major, int minor, int patch) {
+        return clamp(major) << (PART_BITS * 2) | clamp(minor) << PART_BITS | clamp(patch);
+    }
+
+    public static int major(int version) {
+        return version < 0 ? UNKNOWN : version >>> (PART_BITS * 2);
+    }
+
+    public static int minor(int version) {
+        return version < 0 ? UNKNOWN : (version >>> PART_BITS) & PART_MAX;
+    }
+
+    public static int patch(int version) {
+        return version < 0 ? UNKNOWN : version & PART_MAX;
+    }
+
+    /**
+     * Lenient parse of version name, leading non-digit prefix is skipped and
+     * parsing stops at the first char not belonging to {@code major[.minor[.patch]]},
+     * e.g. {@code V10}, {@code EmotionUI_9.1.0}, {@code V5.2.1}, {@code Flyme 7.1.2.0A}
+     *
+     * @return packed version, {@link #UNKNOWN} if no digit found
+     */
+    public static int parse(@Nullable CharSequence version) {
+        if (version == null) {
+            return UNKNOWN;
+        }
+        int length = version.length();
+        int i = 0;
+        while (i < length && !isDigit(version.charAt(i))) {
+            i++;
+        }
+        if (i == length) {
+            return UNKNOWN;
+        }
+        int major = 0;
+        int minor = 0;
+        int patch = 0;
+        for (int part = 0; part < 3; part++) {
+            if (i == length || !isDigit(version.charAt(i))) {
+                break;
+            }
+            int value = 0;
+            while (i < length && isDigit(version.charAt(i))) {
+                value = Math.min(value * 10 + version.charAt(i) - '0', PART_MAX);
+                i++;
+            }
+            if (part == 0) {
+                major = value;
+            } else if (part == 1) {
+                minor = value;
+            } else {
+                patch = value;
+            }
+            if (i < length && version.charAt(i) == '.') {
+                i++;
+            } else {
+                break;
+            }
+        }
+        return pack(major, minor, patch);
+    }
+
+    /**
+     * Strict parse of exactly three dot separated numbers, e.g. MIUI incremental {@code 7.8.2}
+     *
+     * @return packed version, {@code 0} if not matched
+     */
+    public static int parseStrict(@Nullable CharSequence version) {
+        if (version == null) {
+            return 0;
+        }
+        int length = version.length();
+        int i = 0;
+        int packed = 0;
+        for (int part = 0; part < 3; part++) {
+            if (part > 0) {
+                if (i == length || version.charAt(i) != '.') {
+                    return 0;
+                }
+                i++;
+            }
+            int start = i;
+            int value = 0;
+            while (i < length && isDigit(version.charAt(i))) {
+                value = Math.min(value * 10 + version.charAt(i) - '0', PART_MAX);
+                i++;
+            }
+            if (i == start) {
+                return 0;
+            }
+            packed = packed << PART_BITS | value;
+        }
+        return i == length ? packed : 0;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int clamp(int part) {
+        return part < 0 ? 0 : Math.min(part, PART_MAX);
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.support.annotation.Nullable;
+import android.view.Display;
+
+/**
+ * Metrics snapshot of a display
+ * <p>
+ * Sizes are physical (real) sizes of the display in its current rotation, not the window size of caller.
+ * System bars and notch are reported for built-in display only, notch is delegated to {@link DeviceHelper}.
+ *
+ * @author alvince.zy@gmail.com
+ * @see DisplayHelper#getScreenMetrics(android.content.Context)
+ */
+public final class ScreenMetrics {
+
+    private final int displayId;
+    private final int widthPixels;
+    private final int heightPixels;
+    private final int densityDpi;
+    private final float density;
+    private final int widthDp;
+    private final int heightDp;
+    private final int sizeClass;
+    private final int statusBarSize;
+    private final int navigationBarSize;
+    /**
+     * Application context of built-in display, {@code null} for secondary displays
+     */
+    private final Context deviceContext;
+
+    ScreenMetrics(int displayId, int widthPixels, int heightPixels, int densityDpi, float density, int sizeClass,
+                  int statusBarSize, int navigationBarSize, @Nullable Context deviceContext) {
+        this.displayId = displayId;
+        this.widthPixels = widthPixels;
+        this.heightPixels = heightPixels;
+        this.densityDpi = densityDpi;
+        this.density = density;
+        this.widthDp = (int) (widthPixels / density);
+        this.heightDp = (int) (heightPixels / density);
+        this.sizeClass = sizeClass;
+        this.statusBarSize = statusBarSize;
+        this.navigationBarSize = navigationBarSize;
+        this.deviceContext = deviceContext;
+    }
+
+    /**
+     * @return id of display, e.g. {@link Display#DEFAULT_DISPLAY}
+     */
+    public int getDisplayId() {
+        return displayId;
+    }
+
+    public int getWidthPixels() {
+        return widthPixels;
+    }
+
+    public int getHeightPixels() {
+        return heightPixels;
+    }
+
+    public int getDensityDpi() {
+        return densityDpi;
+    }
+
+    public float getDensity() {
+        return density;
+    }
+
+    public int getWidthDp() {
+        return widthDp;
+    }
+
+    public int getHeightDp() {
+        return heightDp;
+    }
+
+    /**
+     * 屏幕尺寸分类
+     * <p>
+     * Classified by app usable size of display in both rotations as framework does, real size below
+     * {@link android.os.Build.VERSION_CODES#JELLY_BEAN}.
+     *
+     * @return one of {@link Configuration#SCREENLAYOUT_SIZE_SMALL}, {@link Configuration#SCREENLAYOUT_SIZE_NORMAL},
+     * {@link Configuration#SCREENLAYOUT_SIZE_LARGE} and {@link Configuration#SCREENLAYOUT_SIZE_XLARGE}
+     */
+    public int getSizeClass() {
+        return sizeClass;
+    }
+
+    /**
+     * @return {@code true} if size class is large or above
+     */
+    public boolean isLarge() {
+        return sizeClass >= Configuration.SCREENLAYOUT_SIZE_LARGE;
+    }
+
+    /**
+     * @return status bar height in px, {@code 0} on secondary displays
+     */
+    public int getStatusBarSize() {
+        return statusBarSize;
+    }
+
+    /**
+     * @return navigation bar size of current rotation in px, {@code 0} if absent or on secondary displays
+     */
+    public int getNavigationBarSize() {
+        return navigationBarSize;
+    }
+
+    /**
+     * @return notch height of device in px, {@code 0} if absent or on secondary displays
+     */
+    public float getNotchHeight() {
+        Context context = deviceContext;
+        if (context == null || !DeviceHelper.hasNotchInScreen(context)) {
+            return 0F;
+        }
+        return DeviceHelper.getScreenNotchHeight(context);
+    }
+
+    @Override
+    public String toString() {
+        return "ScreenMetrics{display=" + displayId
+                + ", size=" + widthPixels + "x" + heightPixels
+                + ", dp=" + widthDp + "x" + heightDp
+                + ", densityDpi=" + densityDpi
+                + ", sizeClass=" + sizeClass
+                + ", statusBar=" + statusBarSize
+                + ", navigationBar=" + navigationBarSize + "}";
+    }
+
+    /**
+     * Size class by the thresholds of framework {@code screenLayout} computing
+     */
+    static int sizeClass(int longDp, int shortDp) {
+        if (longDp >= 960 && shortDp >= 720) {
+            return Configuration.SCREENLAYOUT_SIZE_XLARGE;
+        }
+        if (longDp >= 640 && shortDp >= 480) {
+            return Configuration.SCREENLAYOUT_SIZE_LARGE;
+        }
+        if (longDp >= 470 && shortDp >= 320) {
+            return Configuration.SCREENLAYOUT_SIZE_NORMAL;
+        }
+        return Configuration.SCREENLAYOUT_SIZE_SMALL;
+    }
+}
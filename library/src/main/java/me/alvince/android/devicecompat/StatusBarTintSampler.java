@@ -0,0 +1,334 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.annotation.TargetApi;
+import android.app.Activity;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.IntRange;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.RequiresApi;
+import android.support.annotation.VisibleForTesting;
+import android.view.PixelCopy;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import me.alvince.android.devicecompat.vendor.flyme.StatusbarColorUtils;
+
+/**
+ * Adaptive status bar tint from content under status bar
+ * <p>
+ * A downscaled strip under status bar is captured into one reused bitmap at frame boundaries,
+ * luminance is computed off main thread by {@link StatusbarColorUtils#toGrey(int)} and
+ * {@link DeviceHelper#makeSystemUiReverse(Activity, boolean)} is called with the resolved mode.
+ * Only one sample is in flight at a time, frames drawn meanwhile are skipped.
+ * Samples are throttled to {@link #MIN_INTERVAL_DEFAULT} by default and the last frame is sampled once drawing settles,
+ * e.g. after a scroll ends.
+ * <p>
+ * Main thread cost: since {@link Build.VERSION_CODES#O} window surface is copied asynchronously by {@link PixelCopy},
+ * below that the decor view is drawn into the downscaled bitmap on main thread, which costs roughly a software draw
+ * of the views under status bar per sample. Raise {@link #setMinInterval(long)} for heavy layouts.
+ * Worker thread is shared by all samplers.
+ * <pre>
+ *     StatusBarTintSampler.start(activity);
+ * </pre>
+ *
+ * @author alvince.zy@gmail.com
+ */
+@MainThread
+@RequiresApi(Build.VERSION_CODES.KITKAT)
+public final class StatusBarTintSampler implements ViewTreeObserver.OnPreDrawListener, View.OnAttachStateChangeListener {
+
+    /**
+     * Sampled strip is downscaled by this factor on both axes
+     */
+    private static final int SAMPLE_SCALE = 8;
+    private static final int GREY_THRESHOLD_DEFAULT = 128;
+    /**
+     * Default min interval between two samples in milliseconds
+     */
+    public static final long MIN_INTERVAL_DEFAULT = 150L;
+
+    private final Activity activity;
+    private final View decorView;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Handler worker = WorkerHolder.WORKER;
+    private final Rect source = new Rect();
+    private final Runnable computeAction = new Runnable() {
+        @Override
+        public void run() {
+            compute();
+        }
+    };
+    private final Runnable applyAction = new Runnable() {
+        @Override
+        public void run() {
+            apply();
+        }
+    };
+    private final Runnable settleAction = new Runnable() {
+        @Override
+        public void run() {
+            settle();
+        }
+    };
+    private Object pixelCopyListener;
+
+    private Bitmap bitmap;
+    private Canvas canvas;
+    private int[] pixels;
+
+    private boolean running;
+    private boolean sampling;
+    private long lastSampleMillis;
+    private long minIntervalMillis = MIN_INTERVAL_DEFAULT;
+    private volatile int greyThreshold = GREY_THRESHOLD_DEFAULT;
+    /**
+     * Result of last sample, {@code -1} if undetermined
+     */
+    private volatile int sampledDark = -1;
+
+    private StatusBarTintSampler(Activity activity) {
+        this.activity = activity;
+        this.decorView = activity.getWindow().getDecorView();
+    }
+
+    /**
+     * Start sampling of activity window, the running sampler is returned on repeated calls.
+     */
+    @NonNull
+    public static StatusBarTintSampler start(@NonNull Activity activity) {
+        View decorView = activity.getWindow().getDecorView();
+        Object tag = decorView.getTag(R.id.devicecompat_tint_sampler);
+        if (tag instanceof StatusBarTintSampler) {
+            return (StatusBarTintSampler) tag;
+        }
+        StatusBarTintSampler sampler = new StatusBarTintSampler(activity);
+        decorView.setTag(R.id.devicecompat_tint_sampler, sampler);
+        sampler.running = true;
+        decorView.getViewTreeObserver().addOnPreDrawListener(sampler);
+        decorView.addOnAttachStateChangeListener(sampler);
+        return sampler;
+    }
+
+    /**
+     * Stop sampling and release the buffer, also stopped once window detached.
+     * <p>
+     * Buffer of a sample in flight is owned by worker until its result is delivered, released then.
+     */
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        decorView.getViewTreeObserver().removeOnPreDrawListener(this);
+        decorView.removeOnAttachStateChangeListener(this);
+        if (decorView.getTag(R.id.devicecompat_tint_sampler) == this) {
+            decorView.setTag(R.id.devicecompat_tint_sampler, null);
+        }
+        mainHandler.removeCallbacks(settleAction);
+        if (!sampling) {
+            release();
+        }
+    }
+
+    /**
+     * @param threshold grey level 0~255 from which content is light and dark status bar icons are used
+     */
+    @NonNull
+    public StatusBarTintSampler setGreyThreshold(@IntRange(from = 0, to = 255) int threshold) {
+        greyThreshold = threshold;
+        return this;
+    }
+
+    /**
+     * @param intervalMillis min interval between two samples, {@link #MIN_INTERVAL_DEFAULT} by default,
+     *                       {@code 0} to sample at most once per frame
+     */
+    @NonNull
+    public StatusBarTintSampler setMinInterval(long intervalMillis) {
+        minIntervalMillis = Math.max(intervalMillis, 0L);
+        return this;
+    }
+
+    @Override
+    public boolean onPreDraw() {
+        if (running) {
+            long elapsed = SystemClock.uptimeMillis() - lastSampleMillis;
+            if (!sampling && elapsed >= minIntervalMillis) {
+                mainHandler.removeCallbacks(settleAction);
+                lastSampleMillis += elapsed;
+                sample();
+            } else {
+                // frame skipped, sample it once drawing settles
+                mainHandler.removeCallbacks(settleAction);
+                mainHandler.postDelayed(settleAction, Math.max(minIntervalMillis - elapsed, 0L));
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void onViewAttachedToWindow(View v) {
+    }
+
+    @Override
+    public void onViewDetachedFromWindow(View v) {
+        stop();
+    }
+
+    private void settle() {
+        if (!running) {
+            return;
+        }
+        if (sampling) {
+            mainHandler.postDelayed(settleAction, minIntervalMillis);
+            return;
+        }
+        lastSampleMillis = SystemClock.uptimeMillis();
+        sample();
+    }
+
+    private void sample() {
+        int width = decorView.getWidth();
+        int height = DisplayHelper.getStatusBarSize(activity);
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        int bitmapWidth = Math.max(width / SAMPLE_SCALE, 1);
+        int bitmapHeight = Math.max(height / SAMPLE_SCALE, 1);
+        if (bitmap == null || bitmap.getWidth() != bitmapWidth || bitmap.getHeight() != bitmapHeight) {
+            if (bitmap != null) {
+                bitmap.recycle();
+            }
+            bitmap = Bitmap.createBitmap(bitmapWidth, bitmapHeight, Bitmap.Config.ARGB_8888);
+            canvas = new Canvas(bitmap);
+            pixels = new int[bitmapWidth * bitmapHeight];
+        }
+        sampling = true;
+        source.set(0, 0, width, height);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            requestPixelCopy();
+        } else {
+            bitmap.eraseColor(Color.TRANSPARENT);
+            int save = canvas.save();
+            canvas.scale(bitmapWidth / (float) width, bitmapHeight / (float) height);
+            canvas.clipRect(source);
+            decorView.draw(canvas);
+            canvas.restoreToCount(save);
+            worker.post(computeAction);
+        }
+    }
+
+    /**
+     * Copy window surface scaled into bitmap, done on worker thread
+     */
+    @TargetApi(Build.VERSION_CODES.O)
+    private void requestPixelCopy() {
+        if (pixelCopyListener == null) {
+            pixelCopyListener = new PixelCopy.OnPixelCopyFinishedListener() {
+                @Override
+                public void onPixelCopyFinished(int copyResult) {
+                    if (copyResult == PixelCopy.SUCCESS) {
+                        compute();
+                    } else {
+                        sampledDark = -1;
+                        mainHandler.post(applyAction);
+                    }
+                }
+            };
+        }
+        try {
+            PixelCopy.request(activity.getWindow(), source, bitmap,
+                    (PixelCopy.OnPixelCopyFinishedListener) pixelCopyListener, worker);
+        } catch (IllegalArgumentException e) {
+            // window surface not ready
+            sampling = false;
+        }
+    }
+
+    /**
+     * Average grey of opaque pixels, runs on worker thread
+     */
+    private void compute() {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+        long greySum = 0L;
+        int count = 0;
+        for (int i = 0, size = width * height; i < size; i++) {
+            int pixel = pixels[i];
+            if (Color.alpha(pixel) != 0) {
+                greySum += StatusbarColorUtils.toGrey(pixel);
+                count++;
+            }
+        }
+        sampledDark = count > 0 ? (greySum / count >= greyThreshold ? 1 : 0) : -1;
+        mainHandler.post(applyAction);
+    }
+
+    private void apply() {
+        sampling = false;
+        if (!running) {  // stopped while sampling
+            release();
+            return;
+        }
+        int dark = sampledDark;
+        if (dark >= 0) {
+            // repeated modes are skipped by DeviceHelper
+            DeviceHelper.makeSystemUiReverse(activity, dark == 1);
+        }
+    }
+
+    private void release() {
+        if (bitmap != null) {
+            bitmap.recycle();
+            bitmap = null;
+            canvas = null;
+            pixels = null;
+        }
+    }
+
+    /**
+     * Worker thread shared by samplers, started on first sampler
+     */
+    @VisibleForTesting
+    static final class WorkerHolder {
+        static final Handler WORKER;
+
+        static {
+            HandlerThread thread = new HandlerThread("devicecompat-tint-sampler");
+            thread.start();
+            WORKER = new Handler(thread.getLooper());
+        }
+    }
+}
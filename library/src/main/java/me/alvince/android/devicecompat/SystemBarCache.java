@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.content.ComponentCallbacks;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.support.annotation.NonNull;
+
+/**
+ * Cache of status bar and navigation bar sizes
+ * <p>
+ * Sizes of both orientations are resolved once per screen density and kept in a small copy-on-write array,
+ * so contexts of different densities (e.g. secondary display) don't evict each other.
+ * Dropped on configuration changes through {@link ComponentCallbacks} of application, sizes resolved concurrently
+ * with a drop are returned but not cached.
+ *
+ * @author alvince.zy@gmail.com
+ */
+final class SystemBarCache implements ComponentCallbacks {
+
+    private static final String IDENTIFIER_STATUS_BAR_SIZE = "status_bar_height";
+    private static final String IDENTIFIER_NAV_BAR_HEIGHT = "navigation_bar_height";
+    private static final String IDENTIFIER_NAV_BAR_HEIGHT_LANDSCAPE = "navigation_bar_height_landscape";
+
+    private static final Sizes[] EMPTY = new Sizes[0];
+    private static final SystemBarCache INSTANCE = new SystemBarCache();
+
+    private volatile Sizes[] sizes = EMPTY;
+    /**
+     * Bumped on every invalidation, sizes resolved before are returned but not cached
+     */
+    private volatile int generation;
+    private boolean registered;
+
+    private SystemBarCache() {
+    }
+
+    /**
+     * @return bar sizes of current density of context
+     */
+    @NonNull
+    static Sizes get(@NonNull Context context) {
+        return INSTANCE.obtain(context);
+    }
+
+    /**
+     * Drop cached sizes, resolved again on next query
+     */
+    static void invalidate() {
+        INSTANCE.clear();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+        clear();
+    }
+
+    @Override
+    public void onLowMemory() {
+    }
+
+    private Sizes obtain(Context context) {
+        Resources res = context.getResources();
+        int generation = this.generation;
+        int densityDpi = res.getDisplayMetrics().densityDpi;
+        for (Sizes cached : sizes) {
+            if (cached.densityDpi == densityDpi) {
+                return cached;
+            }
+        }
+        Sizes resolved = new Sizes(context, res, densityDpi);
+        put(resolved, generation);
+        register(context);
+        return resolved;
+    }
+
+    private synchronized void put(Sizes resolved, int generation) {
+        if (generation != this.generation) {
+            return;
+        }
+        Sizes[] current = sizes;
+        for (Sizes cached : current) {
+            if (cached.densityDpi == resolved.densityDpi) {
+                return;
+            }
+        }
+        Sizes[] updated = new Sizes[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, current.length);
+        updated[current.length] = resolved;
+        sizes = updated;
+    }
+
+    private synchronized void clear() {
+        generation++;
+        sizes = EMPTY;
+    }
+
+    private synchronized void register(Context context) {
+        if (registered) {
+            return;
+        }
+        Context appContext = context.getApplicationContext();
+        if (appContext != null) {
+            appContext.registerComponentCallbacks(this);
+            registered = true;
+        }
+    }
+
+    private static int getInternalDimensionSize(Resources res, String key) {
+        int resourceId = res.getIdentifier(key, "dimen", "android");
+        return resourceId > 0 ? res.getDimensionPixelSize(resourceId) : 0;
+    }
+
+    static final class Sizes {
+        final int densityDpi;
+        final int statusBarSize;
+        final boolean hasNavigationBar;
+        final int navigationBarPortrait;
+        final int navigationBarLandscape;
+
+        Sizes(Context context, Resources res, int densityDpi) {
+            this.densityDpi = densityDpi;
+            this.statusBarSize = getInternalDimensionSize(res, IDENTIFIER_STATUS_BAR_SIZE);
+            this.hasNavigationBar = DeviceHelper.detectNavigationBar(context);
+            if (hasNavigationBar) {
+                navigationBarPortrait = getInternalDimensionSize(res, IDENTIFIER_NAV_BAR_HEIGHT);
+                navigationBarLandscape = getInternalDimensionSize(res, IDENTIFIER_NAV_BAR_HEIGHT_LANDSCAPE);
+            } else {
+                navigationBarPortrait = navigationBarLandscape = 0;
+            }
+        }
+
+        /**
+         * @param orientation e.g. {@link Configuration#ORIENTATION_PORTRAIT}
+         */
+        int navigationBarSize(int orientation) {
+            return orientation == Configuration.ORIENTATION_PORTRAIT ? navigationBarPortrait : navigationBarLandscape;
+        }
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.annotation.TargetApi;
+import android.graphics.Color;
+import android.os.Build;
+import android.support.annotation.ColorInt;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.view.Choreographer;
+import android.view.View;
+import android.view.Window;
+import android.view.WindowManager;
+
+import java.util.LinkedHashMap;
+
+/**
+ * Batched System UI changes of a window
+ * <p>
+ * System UI visibility flags, window flags and attributes are collected and applied at most once per frame,
+ * only values differ from current window state are written.
+ * <pre>
+ *     SystemUiTransaction.of(window)
+ *             .hideSystemUi(true)
+ *             .reverseSystemUi(false)
+ *             .setBrightness(128)
+ *             .commit();
+ * </pre>
+ *
+ * @author alvince.zy@gmail.com
+ */
+@MainThread
+public final class SystemUiTransaction {
+
+    /**
+     * Change of window attributes without a setter here, e.g. vendor fields of {@link WindowManager.LayoutParams}
+     */
+    public interface AttributesMutator {
+        /**
+         * Called on main thread right before attributes are written
+         *
+         * @return {@code true} if params changed and need to be written
+         */
+        boolean mutate(@NonNull WindowManager.LayoutParams params);
+    }
+
+    private final Window window;
+    private final Runnable applyAction = new Runnable() {
+        @Override
+        public void run() {
+            apply();
+        }
+    };
+    private Object frameCallback;
+
+    private int addUiFlags;
+    private int clearUiFlags;
+    private int addWindowFlags;
+    private int clearWindowFlags;
+    private boolean brightnessChanged;
+    private float screenBrightness;
+    private boolean statusBarColorChanged;
+    private int statusBarColor;
+    private LinkedHashMap<String, AttributesMutator> mutators;
+    private boolean scheduled;
+
+    private SystemUiTransaction(Window window) {
+        this.window = window;
+    }
+
+    /**
+     * Obtain transaction of window, changes made in the same frame are merged into one.
+     */
+    @NonNull
+    public static SystemUiTransaction of(@NonNull Window window) {
+        View decorView = window.getDecorView();
+        Object tag = decorView.getTag(R.id.devicecompat_system_ui_transaction);
+        if (tag instanceof SystemUiTransaction) {
+            return (SystemUiTransaction) tag;
+        }
+        SystemUiTransaction transaction = new SystemUiTransaction(window);
+        decorView.setTag(R.id.devicecompat_system_ui_transaction, transaction);
+        return transaction;
+    }
+
+    /**
+     * System UI visibility of decor view once pending changes of its transaction applied
+     */
+    static int pendingSystemUiVisibility(@NonNull View decorView) {
+        int visibility = decorView.getSystemUiVisibility();
+        Object tag = decorView.getTag(R.id.devicecompat_system_ui_transaction);
+        if (tag instanceof SystemUiTransaction) {
+            SystemUiTransaction transaction = (SystemUiTransaction) tag;
+            visibility = (visibility & ~transaction.clearUiFlags) | transaction.addUiFlags;
+        }
+        return visibility;
+    }
+
+    /**
+     * Screen brightness of window once pending changes of its transaction applied
+     *
+     * @see WindowManager.LayoutParams#screenBrightness
+     */
+    static float pendingScreenBrightness(@NonNull Window window) {
+        View decorView = window.peekDecorView();
+        Object tag = decorView != null ? decorView.getTag(R.id.devicecompat_system_ui_transaction) : null;
+        if (tag instanceof SystemUiTransaction && ((SystemUiTransaction) tag).brightnessChanged) {
+            return ((SystemUiTransaction) tag).screenBrightness;
+        }
+        return window.getAttributes().screenBrightness;
+    }
+
+    @NonNull
+    public SystemUiTransaction addSystemUiFlags(int flags) {
+        addUiFlags |= flags;
+        clearUiFlags &= ~flags;
+        return this;
+    }
+
+    @NonNull
+    public SystemUiTransaction clearSystemUiFlags(int flags) {
+        clearUiFlags |= flags;
+        addUiFlags &= ~flags;
+        return this;
+    }
+
+    /**
+     * Replace all System UI visibility flags
+     */
+    @NonNull
+    public SystemUiTransaction setSystemUiVisibility(int visibility) {
+        addUiFlags = visibility;
+        clearUiFlags = ~visibility;
+        return this;
+    }
+
+    @NonNull
+    public SystemUiTransaction addWindowFlags(int flags) {
+        addWindowFlags |= flags;
+        clearWindowFlags &= ~flags;
+        return this;
+    }
+
+    @NonNull
+    public SystemUiTransaction clearWindowFlags(int flags) {
+        clearWindowFlags |= flags;
+        addWindowFlags &= ~flags;
+        return this;
+    }
+
+    /**
+     * @param brightness see {@link WindowManager.LayoutParams#screenBrightness}
+     */
+    @NonNull
+    public SystemUiTransaction setScreenBrightness(float brightness) {
+        brightnessChanged = true;
+        screenBrightness = brightness;
+        return this;
+    }
+
+    /**
+     * @param brightness 亮度 0~255, non-positive value to follow system
+     */
+    @NonNull
+    public SystemUiTransaction setBrightness(int brightness) {
+        return setScreenBrightness(brightness > 0
+                ? brightness / 255F : WindowManager.LayoutParams.BRIGHTNESS_OVERRIDE_NONE);
+    }
+
+    /**
+     * Change status bar color, ignored below {@link Build.VERSION_CODES#LOLLIPOP}
+     */
+    @NonNull
+    public SystemUiTransaction setStatusBarColor(@ColorInt int color) {
+        statusBarColorChanged = true;
+        statusBarColor = color;
+        return this;
+    }
+
+    /**
+     * Mutate window attributes in the same single write of this transaction
+     *
+     * @param key pending mutator of the same key is replaced
+     */
+    @NonNull
+    public SystemUiTransaction mutateAttributes(@NonNull String key, @NonNull AttributesMutator mutator) {
+        if (mutators == null) {
+            mutators = new LinkedHashMap<>();
+        }
+        mutators.remove(key);
+        mutators.put(key, mutator);
+        return this;
+    }
+
+    /**
+     * @see DisplayHelper#hideSystemUi(View, boolean)
+     */
+    @NonNull
+    public SystemUiTransaction hideSystemUi(boolean fullscreen) {
+        return addSystemUiFlags(DisplayHelper.hideSystemUiFlags(fullscreen));
+    }
+
+    /**
+     * @see DisplayHelper#makeContentImmersive(android.app.Activity)
+     */
+    @NonNull
+    public SystemUiTransaction makeContentImmersive() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            setSystemUiVisibility(View.SYSTEM_UI_FLAG_LAYOUT_STABLE | View.SYSTEM_UI_FLAG_LAYOUT_FULLSCREEN);
+            clearWindowFlags(WindowManager.LayoutParams.FLAG_TRANSLUCENT_STATUS);
+            addWindowFlags(WindowManager.LayoutParams.FLAG_DRAWS_SYSTEM_BAR_BACKGROUNDS);
+            setStatusBarColor(Color.TRANSPARENT);
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            addWindowFlags(WindowManager.LayoutParams.FLAG_TRANSLUCENT_STATUS);
+        }
+        return this;
+    }
+
+    /**
+     * Standard status bar light mode, ignored below {@link Build.VERSION_CODES#M}
+     *
+     * @see DisplayHelper#reverseSystemUIStandard(android.app.Activity, boolean)
+     */
+    @NonNull
+    public SystemUiTransaction reverseSystemUi(boolean dark) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            if (dark) {
+                addSystemUiFlags(View.SYSTEM_UI_FLAG_LIGHT_STATUS_BAR);
+            } else {
+                clearSystemUiFlags(View.SYSTEM_UI_FLAG_LIGHT_STATUS_BAR);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Apply collected changes on next frame, commits of the same frame are coalesced.
+     */
+    public void commit() {
+        if (scheduled) {
+            return;
+        }
+        scheduled = true;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            postFrameCallback();
+        } else {
+            window.getDecorView().post(applyAction);
+        }
+    }
+
+    /**
+     * Apply collected changes immediately, including the ones waiting for next frame.
+     */
+    public void commitNow() {
+        if (scheduled) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+                removeFrameCallback();
+            } else {
+                window.getDecorView().removeCallbacks(applyAction);
+            }
+        }
+        apply();
+    }
+
+    private void apply() {
+        scheduled = false;
+
+        WindowManager.LayoutParams attrs = window.getAttributes();
+        boolean attrsChanged = false;
+        int windowFlags = (attrs.flags & ~clearWindowFlags) | addWindowFlags;
+        if (windowFlags != attrs.flags) {
+            attrs.flags = windowFlags;
+            attrsChanged = true;
+        }
+        if (brightnessChanged && attrs.screenBrightness != screenBrightness) {
+            attrs.screenBrightness = screenBrightness;
+            attrsChanged = true;
+        }
+        if (mutators != null && !mutators.isEmpty()) {
+            for (AttributesMutator mutator : mutators.values()) {
+                attrsChanged |= mutator.mutate(attrs);
+            }
+            mutators.clear();
+        }
+        if (attrsChanged) {
+            window.setAttributes(attrs);
+        }
+
+        if (statusBarColorChanged && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP
+                && window.getStatusBarColor() != statusBarColor) {
+            window.setStatusBarColor(statusBarColor);
+        }
+
+        View decorView = window.getDecorView();
+        int oldVisibility = decorView.getSystemUiVisibility();
+        int visibility = (oldVisibility & ~clearUiFlags) | addUiFlags;
+        if (visibility != oldVisibility) {
+            decorView.setSystemUiVisibility(visibility);
+        }
+
+        addUiFlags = clearUiFlags = 0;
+        addWindowFlags = clearWindowFlags = 0;
+        brightnessChanged = statusBarColorChanged = false;
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void postFrameCallback() {
+        if (frameCallback == null) {
+            frameCallback = new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    apply();
+                }
+            };
+        }
+        Choreographer.getInstance().postFrameCallback((Choreographer.FrameCallback) frameCallback);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void removeFrameCallback() {
+        if (frameCallback != null) {
+            Choreographer.getInstance().removeFrameCallback((Choreographer.FrameCallback) frameCallback);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.huawei.android.util;
+
+/**
+ * Fake of EMUI notch api, see {@code DeviceCompatHuawei}
+ *
+ * @author alvince.zy@gmail.com
+ */
+public class HwNotchSizeUtil {
+
+    public static boolean hasNotch;
+    public static int[] notchSize = {0, 0};
+
+    public static int hasNotchCalls;
+    public static int getNotchSizeCalls;
+
+    public static boolean hasNotchInScreen() {
+        hasNotchCalls++;
+        return hasNotch;
+    }
+
+    public static int[] getNotchSize() {
+        getNotchSizeCalls++;
+        return notchSize;
+    }
+
+    public static void reset() {
+        hasNotch = false;
+        notchSize = new int[]{0, 0};
+        hasNotchCalls = 0;
+        getNotchSizeCalls = 0;
+    }
+}
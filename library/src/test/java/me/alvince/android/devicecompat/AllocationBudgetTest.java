@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.content.Context;
+import android.graphics.Point;
+import android.os.Build;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Allocation and reflection budget of cached paths, measured by {@code ThreadMXBean} of HotSpot
+ *
+ * @author alvince.zy@gmail.com
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.O_MR1)
+public class AllocationBudgetTest {
+
+    private static final int WARMUP = 10000;
+    private static final int ITERATIONS = 100000;
+    /**
+     * Bytes per call, leaves room for allocations of the measuring itself
+     */
+    private static final double BUDGET = 0.1;
+
+    private Context context;
+    private ReflectionCounter counter;
+
+    @Before
+    public void setUp() throws IOException {
+        FakeDevice.reset();
+        FakeDevice.setBuild("Xiaomi", "Xiaomi", "dipper", "MI 8");
+        FakeDevice.loadBuildProp();
+        context = RuntimeEnvironment.application;
+        counter = new ReflectionCounter();
+    }
+
+    @After
+    public void tearDown() {
+        FakeDevice.reset();
+    }
+
+    @Test
+    public void hasNotchInScreen() {
+        assertCached(new Runnable() {
+            @Override
+            public void run() {
+                DeviceHelper.hasNotchInScreen(context);
+            }
+        });
+    }
+
+    @Test
+    public void getScreenNotchHeight() {
+        assertCached(new Runnable() {
+            @Override
+            public void run() {
+                DeviceHelper.getScreenNotchHeight(context);
+            }
+        });
+    }
+
+    @Test
+    public void getProperty() {
+        final DeviceHelper.BuildProperties props = DeviceHelper.getBuildProps();
+        assertCached(new Runnable() {
+            @Override
+            public void run() {
+                props.getProperty(DeviceCompatXiaomi.PROP_XIAOMI_CONF_NOTCH);
+            }
+        });
+    }
+
+    @Test
+    public void quirkLookup() {
+        final QuirkDatabase database = QuirkDatabase.get(context);
+        assertCached(new Runnable() {
+            @Override
+            public void run() {
+                database.find(QuirkDatabase.KEY_DEVICE, "OnePlus6");
+            }
+        });
+    }
+
+    @Test
+    public void obtainScreenSize() {
+        final Point size = new Point();
+        assertCached(new Runnable() {
+            @Override
+            public void run() {
+                DisplayHelper.obtainScreenSize(context, size);
+            }
+        });
+    }
+
+    @Test
+    public void obtainPhysicalScreenSize() {
+        final Point size = new Point();
+        assertCached(new Runnable() {
+            @Override
+            public void run() {
+                DisplayHelper.obtainPhysicalScreenSize(context, size);
+            }
+        });
+    }
+
+    /**
+     * Run {@code call} once to resolve, then assert repeated calls allocate and reflect nothing
+     */
+    private void assertCached(Runnable call) {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        for (int i = 0; i < WARMUP; i++) {
+            call.run();
+        }
+        DeviceHelper.setMetrics(counter);
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < ITERATIONS; i++) {
+            call.run();
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        DeviceHelper.setMetrics(null);
+
+        assertEquals(0, counter.lookups);
+        assertTrue(allocated + " bytes allocated", (double) allocated / ITERATIONS < BUDGET);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.os.Build;
+import android.provider.Settings;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Cached system brightness of {@link BrightnessObserver}
+ *
+ * @author alvince.zy@gmail.com
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.O_MR1)
+public class BrightnessObserverTest {
+
+    private Context context;
+    private ContentResolver resolver;
+    private final List<Integer> changes = new ArrayList<>();
+    private final BrightnessObserver.OnBrightnessChangedListener listener =
+            new BrightnessObserver.OnBrightnessChangedListener() {
+                @Override
+                public void onBrightnessChanged(int brightness, boolean automatic) {
+                    changes.add(brightness);
+                }
+            };
+
+    @Before
+    public void setUp() {
+        context = RuntimeEnvironment.application;
+        resolver = context.getContentResolver();
+        Settings.System.putInt(resolver, Settings.System.SCREEN_BRIGHTNESS, 100);
+    }
+
+    @After
+    public void tearDown() {
+        while (BrightnessObserver.peek() != null) {
+            BrightnessObserver.stop();
+        }
+    }
+
+    @Test
+    public void cacheUpdatedOnChange() {
+        BrightnessObserver observer = BrightnessObserver.start(context);
+        observer.addOnBrightnessChangedListener(listener);
+        assertEquals(100, DisplayHelper.getScreenBrightness(context));
+
+        Settings.System.putInt(resolver, Settings.System.SCREEN_BRIGHTNESS, 42);
+        Settings.System.putInt(resolver, Settings.System.SCREEN_BRIGHTNESS_MODE,
+                Settings.System.SCREEN_BRIGHTNESS_MODE_AUTOMATIC);
+        // cached until observer notified
+        assertEquals(100, DisplayHelper.getScreenBrightness(context));
+
+        resolver.notifyChange(Settings.System.getUriFor(Settings.System.SCREEN_BRIGHTNESS), null);
+        assertEquals(42, DisplayHelper.getScreenBrightness(context));
+        assertTrue(DisplayHelper.isAutoBrightness(context));
+        assertEquals(1, changes.size());
+        assertEquals(42, (int) changes.get(0));
+    }
+
+    @Test
+    public void stoppedByLastSubscriber() {
+        BrightnessObserver observer = BrightnessObserver.start(context);
+        observer.addOnBrightnessChangedListener(listener);
+        assertSame(observer, BrightnessObserver.start(context));
+
+        BrightnessObserver.stop();
+        assertSame(observer, BrightnessObserver.peek());
+        Settings.System.putInt(resolver, Settings.System.SCREEN_BRIGHTNESS, 42);
+        resolver.notifyChange(Settings.System.getUriFor(Settings.System.SCREEN_BRIGHTNESS), null);
+        assertEquals(1, changes.size());
+
+        BrightnessObserver.stop();
+        assertNull(BrightnessObserver.peek());
+        Settings.System.putInt(resolver, Settings.System.SCREEN_BRIGHTNESS, 7);
+        resolver.notifyChange(Settings.System.getUriFor(Settings.System.SCREEN_BRIGHTNESS), null);
+        assertEquals(1, changes.size());
+        // queried directly once stopped
+        assertEquals(7, DisplayHelper.getScreenBrightness(context));
+    }
+}
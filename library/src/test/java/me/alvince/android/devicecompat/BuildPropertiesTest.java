@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.os.Build;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Property sources of {@link DeviceHelper.BuildProperties}
+ *
+ * @author alvince.zy@gmail.com
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.O_MR1)
+public class BuildPropertiesTest {
+
+    private static final String KEY_NOTCH = DeviceCompatXiaomi.PROP_XIAOMI_CONF_NOTCH;
+    private static final String KEY_VERSION_NAME = MiUiSysUtils.KEY_MIUI_VERSION_NAME;
+    private static final String KEY_INCREMENTAL = MiUiSysUtils.KEY_BUILD_VERSION_INCREMENTAL;
+    private static final String KEY_ABSENT = "ro.devicecompat.absent";
+
+    private ReflectionCounter counter;
+
+    @Before
+    public void setUp() {
+        FakeDevice.reset();
+        counter = new ReflectionCounter();
+        DeviceHelper.setMetrics(counter);
+    }
+
+    @After
+    public void tearDown() {
+        FakeDevice.reset();
+    }
+
+    @Test
+    public void registeredKeysScanned() throws IOException {
+        DeviceHelper.BuildProperties props =
+                new DeviceHelper.BuildProperties(KEY_NOTCH, KEY_VERSION_NAME, KEY_INCREMENTAL);
+        InputStream is = FakeDevice.openBuildProp();
+        try {
+            props.load(is);
+        } finally {
+            is.close();
+        }
+
+        assertEquals("1", props.getProperty(KEY_NOTCH));
+        assertEquals("V10", props.getProperty(KEY_VERSION_NAME));
+        assertEquals("V10.0.2.0.OEBCNFH", props.getProperty(KEY_INCREMENTAL));
+        assertEquals(0, counter.accesses);
+    }
+
+    @Test
+    public void systemPropertiesReadInBatch() throws IOException {
+        FakeDevice.loadBuildProp();
+        DeviceHelper.BuildProperties props =
+                new DeviceHelper.BuildProperties(KEY_NOTCH, KEY_VERSION_NAME, KEY_INCREMENTAL);
+
+        String[] values = props.getProperties(KEY_NOTCH, KEY_VERSION_NAME, KEY_INCREMENTAL);
+        assertArrayEquals(new String[]{"1", "V10", "V10.0.2.0.OEBCNFH"}, values);
+        assertEquals(1, counter.phases.size());
+        assertEquals(DeviceCompatMetrics.PHASE_PROPERTY_SOURCE, counter.phases.get(0));
+
+        counter.clear();
+        props.getProperties(KEY_NOTCH, KEY_VERSION_NAME, KEY_INCREMENTAL);
+        assertEquals(0, counter.accesses);
+    }
+
+    @Test
+    public void absentValueMemoized() {
+        DeviceHelper.BuildProperties props = new DeviceHelper.BuildProperties(KEY_ABSENT);
+        assertNull(props.getProperty(KEY_ABSENT));
+
+        counter.clear();
+        for (int i = 0; i < 10; i++) {
+            assertNull(props.getProperty(KEY_ABSENT));
+        }
+        assertEquals(0, counter.accesses);
+    }
+}
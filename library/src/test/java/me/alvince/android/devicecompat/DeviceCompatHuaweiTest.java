@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.content.Context;
+import android.os.Build;
+
+import com.huawei.android.util.HwNotchSizeUtil;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * EMUI notch api through {@link DeviceCompatHuawei}, backed by fake {@link HwNotchSizeUtil}
+ *
+ * @author alvince.zy@gmail.com
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.O_MR1)
+public class DeviceCompatHuaweiTest {
+
+    private Context context;
+    private ReflectionCounter counter;
+
+    @Before
+    public void setUp() {
+        FakeDevice.reset();
+        FakeDevice.setBuild("HUAWEI", "HUAWEI", "HWCLT", "CLT-AL00");
+        context = RuntimeEnvironment.application;
+        counter = new ReflectionCounter();
+        DeviceHelper.setMetrics(counter);
+    }
+
+    @After
+    public void tearDown() {
+        FakeDevice.reset();
+    }
+
+    @Test
+    public void notchResolvedByVendorApi() {
+        HwNotchSizeUtil.hasNotch = true;
+        HwNotchSizeUtil.notchSize = new int[]{1080, 88};
+
+        DeviceCompatHuawei compat = new DeviceCompatHuawei();
+        assertTrue(compat.hasNotchInScreen(context));
+        assertEquals(88F, compat.getScreenNotchHeight(context), 0F);
+    }
+
+    @Test
+    public void heightNotProbedWithoutNotch() {
+        DeviceCompatHuawei compat = new DeviceCompatHuawei();
+        assertFalse(compat.hasNotchInScreen(context));
+        assertEquals(0F, compat.getScreenNotchHeight(context), 0F);
+        assertEquals(0, HwNotchSizeUtil.getNotchSizeCalls);
+    }
+
+    @Test
+    public void vendorApiInvokedOnce() {
+        HwNotchSizeUtil.hasNotch = true;
+        HwNotchSizeUtil.notchSize = new int[]{1080, 88};
+
+        DeviceCompatHuawei compat = new DeviceCompatHuawei();
+        for (int i = 0; i < 100; i++) {
+            compat.hasNotchInScreen(context);
+            compat.getScreenNotchHeight(context);
+        }
+        assertEquals(1, HwNotchSizeUtil.hasNotchCalls);
+        assertEquals(1, HwNotchSizeUtil.getNotchSizeCalls);
+    }
+
+    @Test
+    public void noReflectionOnMemoizedPath() {
+        HwNotchSizeUtil.hasNotch = true;
+        DeviceCompatHuawei compat = new DeviceCompatHuawei();
+        compat.hasNotchInScreen(context);
+        compat.getScreenNotchHeight(context);
+
+        counter.clear();
+        for (int i = 0; i < 100; i++) {
+            compat.hasNotchInScreen(context);
+            compat.getScreenNotchHeight(context);
+        }
+        assertEquals(0, counter.accesses);
+    }
+
+    @Test
+    public void handlesResolvedOncePerProcess() {
+        HwNotchSizeUtil.hasNotch = true;
+        new DeviceCompatHuawei().getScreenNotchHeight(context);
+
+        counter.clear();
+        DeviceCompatHuawei compat = new DeviceCompatHuawei();
+        assertTrue(compat.hasNotchInScreen(context));
+        compat.getScreenNotchHeight(context);
+        assertEquals(2, counter.accesses);
+        assertEquals(0, counter.lookups);
+    }
+
+    @Test
+    public void vendorSelectedByRom() {
+        HwNotchSizeUtil.hasNotch = true;
+        HwNotchSizeUtil.notchSize = new int[]{1080, 88};
+
+        assertEquals(DeviceHelper.ROM_HUAWEI_EMUI, DeviceHelper.getRom());
+        assertTrue(DeviceHelper.hasNotchInScreen(context));
+        assertEquals(88F, DeviceHelper.getScreenNotchHeight(context), 0F);
+    }
+}
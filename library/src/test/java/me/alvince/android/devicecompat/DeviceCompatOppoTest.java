@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.content.Context;
+import android.os.Build;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * OPPO notch feature through {@link DeviceCompatOppo}
+ *
+ * @author alvince.zy@gmail.com
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.O_MR1)
+public class DeviceCompatOppoTest {
+
+    private static final String FEATURE_NOTCH = "com.oppo.feature.screen.heteromorphism";
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        FakeDevice.reset();
+        FakeDevice.setBuild("OPPO", "OPPO", "CPH1831", "PAAM00");
+        context = RuntimeEnvironment.application;
+    }
+
+    @After
+    public void tearDown() {
+        FakeDevice.reset();
+    }
+
+    @Test
+    public void notchResolvedBySystemFeature() {
+        shadowOf(context.getPackageManager()).setSystemFeature(FEATURE_NOTCH, true);
+
+        DeviceCompatOppo compat = new DeviceCompatOppo();
+        assertTrue(compat.hasNotchInScreen(context));
+        // brand:OPPO notch_height=80px of quirk table
+        assertEquals(80F, compat.getScreenNotchHeight(context), 0F);
+    }
+
+    @Test
+    public void noNotchWithoutSystemFeature() {
+        DeviceCompatOppo compat = new DeviceCompatOppo();
+        assertFalse(compat.hasNotchInScreen(context));
+        assertEquals(0F, compat.getScreenNotchHeight(context), 0F);
+    }
+
+    @Test
+    public void vendorSelectedByRom() {
+        shadowOf(context.getPackageManager()).setSystemFeature(FEATURE_NOTCH, true);
+
+        assertEquals(DeviceHelper.ROM_OPPO, DeviceHelper.getRom());
+        assertTrue(DeviceHelper.hasNotchInScreen(context));
+        assertEquals(80F, DeviceHelper.getScreenNotchHeight(context), 0F);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Concurrent notch memoization of {@link DeviceCompatStub}
+ *
+ * @author alvince.zy@gmail.com
+ */
+public class DeviceCompatStubStressTest {
+
+    // vendor probes of the counting stub never touch context
+    private static final Context CONTEXT = null;
+
+    @Test
+    public void notchProbedOnceUnderContention() throws Exception {
+        Stress.run(new Stress.Round<CountingCompat, Float>() {
+            @Override
+            public CountingCompat newState() {
+                return new CountingCompat();
+            }
+
+            @Override
+            public Float actor(CountingCompat compat) {
+                assertTrue(compat.hasNotchInScreen(CONTEXT));
+                return compat.getScreenNotchHeight(CONTEXT);
+            }
+
+            @Override
+            public void arbiter(CountingCompat compat, List<Float> results) {
+                assertEquals(1, compat.notchProbes.get());
+                assertEquals(1, compat.heightProbes.get());
+                for (Float result : results) {
+                    assertEquals(CountingCompat.HEIGHT, result, 0F);
+                }
+            }
+        });
+    }
+
+    @Test
+    public void probedAgainAfterInvalidate() {
+        CountingCompat compat = new CountingCompat();
+        compat.getScreenNotchHeight(CONTEXT);
+        compat.getScreenNotchHeight(CONTEXT);
+        compat.invalidateNotchCache();
+        assertEquals(CountingCompat.HEIGHT, compat.getScreenNotchHeight(CONTEXT), 0F);
+        assertEquals(2, compat.notchProbes.get());
+        assertEquals(2, compat.heightProbes.get());
+    }
+
+    private static class CountingCompat extends DeviceCompatStub {
+        static final float HEIGHT = 80F;
+
+        final AtomicInteger notchProbes = new AtomicInteger();
+        final AtomicInteger heightProbes = new AtomicInteger();
+
+        CountingCompat() {
+            super("");
+        }
+
+        @Override
+        protected boolean detectNotchInScreen(@NonNull Context context) {
+            notchProbes.incrementAndGet();
+            Thread.yield();
+            return true;
+        }
+
+        @Override
+        protected float detectScreenNotchHeight(@NonNull Context context) {
+            heightProbes.incrementAndGet();
+            Thread.yield();
+            return HEIGHT;
+        }
+    }
+}
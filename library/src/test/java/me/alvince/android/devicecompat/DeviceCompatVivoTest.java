@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.content.Context;
+import android.os.Build;
+import android.util.FtFeature;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * vivo notch feature through {@link DeviceCompatVivo}, backed by fake {@link FtFeature}
+ *
+ * @author alvince.zy@gmail.com
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.O_MR1)
+public class DeviceCompatVivoTest {
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        FakeDevice.reset();
+        FakeDevice.setBuild("vivo", "vivo", "PD1730", "vivo X21A");
+        context = RuntimeEnvironment.application;
+    }
+
+    @After
+    public void tearDown() {
+        FakeDevice.reset();
+    }
+
+    @Test
+    public void notchResolvedByFeature() {
+        FtFeature.features = FtFeature.FEATURE_NOTCH;
+
+        DeviceCompatVivo compat = new DeviceCompatVivo();
+        assertTrue(compat.hasNotchInScreen(context));
+        // brand:vivo notch_height=27dp of quirk table
+        assertEquals(DisplayHelper.fromDip(context, 27), compat.getScreenNotchHeight(context), 0F);
+    }
+
+    @Test
+    public void noNotchWithoutFeature() {
+        FtFeature.features = 0x00000008;
+
+        DeviceCompatVivo compat = new DeviceCompatVivo();
+        assertFalse(compat.hasNotchInScreen(context));
+        assertEquals(0F, compat.getScreenNotchHeight(context), 0F);
+    }
+
+    @Test
+    public void featureQueriedOnce() {
+        FtFeature.features = FtFeature.FEATURE_NOTCH;
+
+        DeviceCompatVivo compat = new DeviceCompatVivo();
+        for (int i = 0; i < 100; i++) {
+            compat.hasNotchInScreen(context);
+            compat.getScreenNotchHeight(context);
+        }
+        assertEquals(1, FtFeature.calls);
+    }
+
+    @Test
+    public void featureQueriedAgainAfterInvalidate() {
+        DeviceCompatVivo compat = new DeviceCompatVivo();
+        assertFalse(compat.hasNotchInScreen(context));
+
+        FtFeature.features = FtFeature.FEATURE_NOTCH;
+        compat.invalidateNotchCache();
+        assertTrue(compat.hasNotchInScreen(context));
+        assertEquals(2, FtFeature.calls);
+    }
+}
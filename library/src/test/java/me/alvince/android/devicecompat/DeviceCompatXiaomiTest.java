@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.Build;
+import android.view.View;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * MIUI notch and status bar mode through {@link DeviceCompatXiaomi}, device described by synthetic build.prop
+ *
+ * @author alvince.zy@gmail.com
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.O_MR1)
+public class DeviceCompatXiaomiTest {
+
+    private static final String MIUI_DARK_MODE_FLAG = "android.view.MiuiWindowManager$LayoutParams"
+            + "#EXTRA_FLAG_STATUS_BAR_DARK_MODE";
+
+    private Context context;
+    private ReflectionCounter counter;
+
+    @Before
+    public void setUp() throws IOException {
+        FakeDevice.reset();
+        FakeDevice.setBuild("Xiaomi", "Xiaomi", "dipper", "MI 8");
+        FakeDevice.loadBuildProp();
+        context = RuntimeEnvironment.application;
+        counter = new ReflectionCounter();
+        DeviceHelper.setMetrics(counter);
+    }
+
+    @After
+    public void tearDown() {
+        FakeDevice.reset();
+    }
+
+    @Test
+    public void notchResolvedByBuildProp() {
+        DeviceCompatXiaomi compat = new DeviceCompatXiaomi();
+        assertTrue(compat.hasNotchInScreen(context));
+        // manufacturer:Xiaomi notch_height=status_bar of quirk table
+        assertEquals(DisplayHelper.getStatusBarSize(context), compat.getScreenNotchHeight(context), 0F);
+    }
+
+    @Test
+    public void noNotchWithoutBuildProp() {
+        FakeDevice.setSystemProperty(DeviceCompatXiaomi.PROP_XIAOMI_CONF_NOTCH, "0");
+
+        DeviceCompatXiaomi compat = new DeviceCompatXiaomi();
+        assertFalse(compat.hasNotchInScreen(context));
+        assertEquals(0F, compat.getScreenNotchHeight(context), 0F);
+    }
+
+    @Test
+    public void miuiVersionParsed() {
+        assertEquals(10, new MiUiSysUtils(DeviceHelper.getBuildProps()).getMIUIVersion());
+    }
+
+    @Test
+    public void miuiDarkModeSinceV9() {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+
+        assertTrue(new DeviceCompatXiaomi().makeSystemUIReverse(activity, true));
+        assertTrue(counter.found.contains(MIUI_DARK_MODE_FLAG));
+        assertFalse(isLightStatusBar(activity));
+    }
+
+    @Test
+    public void miuiDarkModeSinceIncremental() {
+        FakeDevice.setSystemProperty(MiUiSysUtils.KEY_MIUI_VERSION_NAME, "V8");
+        FakeDevice.setSystemProperty(MiUiSysUtils.KEY_BUILD_VERSION_INCREMENTAL, "7.7.13");
+        Activity activity = Robolectric.setupActivity(Activity.class);
+
+        assertTrue(new DeviceCompatXiaomi().makeSystemUIReverse(activity, true));
+        assertFalse(isLightStatusBar(activity));
+    }
+
+    @Test
+    public void standardFlagsBeforeIncremental() {
+        FakeDevice.setSystemProperty(MiUiSysUtils.KEY_MIUI_VERSION_NAME, "V8");
+        FakeDevice.setSystemProperty(MiUiSysUtils.KEY_BUILD_VERSION_INCREMENTAL, "7.6.1");
+        Activity activity = Robolectric.setupActivity(Activity.class);
+
+        assertTrue(new DeviceCompatXiaomi().makeSystemUIReverse(activity, true));
+        assertTrue(isLightStatusBar(activity));
+    }
+
+    @Test
+    public void noReflectionLookupOnRepeatedReverse() {
+        Activity activity = Robolectric.setupActivity(Activity.class);
+        DeviceCompatXiaomi compat = new DeviceCompatXiaomi();
+        compat.makeSystemUIReverse(activity, true);
+
+        counter.clear();
+        for (int i = 0; i < 100; i++) {
+            compat.makeSystemUIReverse(activity, i % 2 == 0);
+        }
+        assertEquals(0, counter.lookups);
+    }
+
+    @Test
+    public void vendorSelectedByRom() {
+        assertEquals(DeviceHelper.ROM_XIAOMI_MIUI, DeviceHelper.getRom());
+        assertEquals("V10", DeviceHelper.getRomVersion());
+        assertTrue(DeviceHelper.hasNotchInScreen(context));
+    }
+
+    private static boolean isLightStatusBar(Activity activity) {
+        int visibility = activity.getWindow().getDecorView().getSystemUiVisibility();
+        return (visibility & View.SYSTEM_UI_FLAG_LIGHT_STATUS_BAR) != 0;
+    }
+}
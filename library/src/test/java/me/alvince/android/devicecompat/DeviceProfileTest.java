@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.content.Context;
+import android.os.Build;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Snapshot persistence of {@link DeviceProfile}
+ *
+ * @author alvince.zy@gmail.com
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.O_MR1)
+public class DeviceProfileTest {
+
+    private Context context;
+    private File file;
+
+    @Before
+    public void setUp() {
+        FakeDevice.reset();
+        context = RuntimeEnvironment.application;
+        file = new File(context.getFilesDir(), "devicecompat.profile");
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        FakeDevice.reset();
+    }
+
+    @Test
+    public void changesFlushedTogether() throws Exception {
+        DeviceProfile profile = new DeviceProfile();
+        profile.restore(context);
+        profile.setVendor(DeviceHelper.ROM_XIAOMI_MIUI);
+        profile.setNotch(true);
+        profile.setNotchHeight(66F);
+        DeviceProfile.awaitFlush();
+        assertTrue(file.exists());
+
+        DeviceProfile restored = new DeviceProfile();
+        restored.restore(context);
+        assertEquals(DeviceHelper.ROM_XIAOMI_MIUI, restored.vendor);
+        assertEquals(DeviceProfile.NOTCH_PRESENT, restored.notchState);
+        assertEquals(66F, restored.notchHeight, 0F);
+    }
+
+    @Test
+    public void droppedOnDensityChange() throws Exception {
+        DeviceProfile profile = new DeviceProfile();
+        profile.restore(context);
+        profile.setNotchHeight(66F);
+        DeviceProfile.awaitFlush();
+
+        context.getResources().getDisplayMetrics().densityDpi += 40;
+        try {
+            DeviceProfile restored = new DeviceProfile();
+            restored.restore(context);
+            assertEquals(-1F, restored.notchHeight, 0F);
+        } finally {
+            context.getResources().getDisplayMetrics().densityDpi -= 40;
+        }
+    }
+
+    @Test
+    public void nothingWrittenBeforeAttached() throws Exception {
+        DeviceProfile profile = new DeviceProfile();
+        profile.setNotch(false);
+        DeviceProfile.awaitFlush();
+        assertFalse(file.exists());
+    }
+}
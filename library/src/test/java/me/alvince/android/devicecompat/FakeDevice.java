@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.os.Build;
+import android.util.FtFeature;
+
+import com.huawei.android.util.HwNotchSizeUtil;
+
+import org.robolectric.util.ReflectionHelpers;
+import org.robolectric.util.ReflectionHelpers.ClassParameter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Fake device of vendor tests running on Robolectric
+ * <p>
+ * Library memoizes device values per process, {@link #reset()} must be called around every test.
+ *
+ * @author alvince.zy@gmail.com
+ */
+final class FakeDevice {
+
+    static final String BUILD_PROP = "build.prop";
+
+    private static final String[] BUILD_FIELDS = {"BRAND", "MANUFACTURER", "DEVICE", "MODEL"};
+    private static String[] defaults;
+
+    private FakeDevice() {
+    }
+
+    /**
+     * Forget resolved device values, restore {@link Build} fields and vendor fakes
+     */
+    static void reset() {
+        if (defaults == null) {
+            defaults = new String[BUILD_FIELDS.length];
+            for (int i = 0; i < BUILD_FIELDS.length; i++) {
+                defaults[i] = ReflectionHelpers.<String>getStaticField(Build.class, BUILD_FIELDS[i]);
+            }
+        } else {
+            setBuild(defaults[0], defaults[1], defaults[2], defaults[3]);
+        }
+        DeviceHelper.setMetrics(null);
+        DeviceHelper.reset();
+        HwNotchSizeUtil.reset();
+        FtFeature.reset();
+    }
+
+    static void setBuild(String brand, String manufacturer, String device, String model) {
+        ReflectionHelpers.setStaticField(Build.class, "BRAND", brand);
+        ReflectionHelpers.setStaticField(Build.class, "MANUFACTURER", manufacturer);
+        ReflectionHelpers.setStaticField(Build.class, "DEVICE", device);
+        ReflectionHelpers.setStaticField(Build.class, "MODEL", model);
+    }
+
+    /**
+     * Publish synthetic build.prop of test resources as system properties
+     */
+    static void loadBuildProp() throws IOException {
+        Properties props = new Properties();
+        InputStream is = openBuildProp();
+        try {
+            props.load(is);
+        } finally {
+            is.close();
+        }
+        for (String key : props.stringPropertyNames()) {
+            setSystemProperty(key, props.getProperty(key));
+        }
+    }
+
+    static InputStream openBuildProp() {
+        return FakeDevice.class.getResourceAsStream(BUILD_PROP);
+    }
+
+    /**
+     * @param value {@code null} to remove property
+     */
+    static void setSystemProperty(String key, String value) {
+        Class<?> systemProperties =
+                ReflectionHelpers.loadClass(FakeDevice.class.getClassLoader(), "android.os.SystemProperties");
+        ReflectionHelpers.callStaticMethod(systemProperties, "set",
+                ClassParameter.from(String.class, key), ClassParameter.from(String.class, value));
+    }
+}
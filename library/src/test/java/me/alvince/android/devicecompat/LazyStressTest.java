@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Concurrent creation and publication of {@link Lazy}
+ *
+ * @author alvince.zy@gmail.com
+ */
+public class LazyStressTest {
+
+    @Test
+    public void createdOnceUnderContention() throws Exception {
+        Stress.run(new Stress.Round<CountingLazy, Object>() {
+            @Override
+            public CountingLazy newState() {
+                return new CountingLazy();
+            }
+
+            @Override
+            public Object actor(CountingLazy lazy) {
+                return lazy.get();
+            }
+
+            @Override
+            public void arbiter(CountingLazy lazy, List<Object> results) {
+                assertEquals(1, lazy.created.get());
+                for (Object result : results) {
+                    assertSame(lazy.peek(), result);
+                }
+            }
+        });
+    }
+
+    @Test
+    public void publishesFullyConstructedValue() throws Exception {
+        Stress.run(new Stress.Round<Lazy<Holder>, Integer>() {
+            @Override
+            public Lazy<Holder> newState() {
+                return new Lazy<Holder>() {
+                    @NonNull
+                    @Override
+                    protected Holder create() {
+                        Holder holder = new Holder();
+                        holder.first = 1;
+                        holder.second = 2;
+                        return holder;
+                    }
+                };
+            }
+
+            @Override
+            public Integer actor(Lazy<Holder> lazy) {
+                Holder holder = lazy.get();
+                return holder.first + holder.second;
+            }
+
+            @Override
+            public void arbiter(Lazy<Holder> lazy, List<Integer> results) {
+                for (Integer result : results) {
+                    assertEquals(3, result.intValue());
+                }
+            }
+        });
+    }
+
+    @Test
+    public void peekBeforeCreate() {
+        CountingLazy lazy = new CountingLazy();
+        assertNull(lazy.peek());
+        Object value = lazy.get();
+        assertSame(value, lazy.peek());
+        assertEquals(1, lazy.created.get());
+    }
+
+    private static class CountingLazy extends Lazy<Object> {
+        final AtomicInteger created = new AtomicInteger();
+
+        @NonNull
+        @Override
+        protected Object create() {
+            created.incrementAndGet();
+            return new Object();
+        }
+    }
+
+    private static class Holder {
+        int first;
+        int second;
+    }
+}
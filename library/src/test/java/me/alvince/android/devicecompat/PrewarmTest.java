@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.content.Context;
+import android.os.Build;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Completion of {@link DeviceHelper#prewarm(Context, Executor)}
+ *
+ * @author alvince.zy@gmail.com
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.O_MR1)
+public class PrewarmTest {
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        FakeDevice.reset();
+        context = RuntimeEnvironment.application;
+    }
+
+    @After
+    public void tearDown() {
+        FakeDevice.reset();
+    }
+
+    @Test
+    public void completedByAllProbes() throws Exception {
+        Future<Void> future = DeviceHelper.prewarm(context, DIRECT);
+        assertTrue(future.isDone());
+        future.get(0, TimeUnit.MILLISECONDS);
+        assertSame(future, DeviceHelper.prewarm(context, DIRECT));
+    }
+
+    @Test
+    public void rejectionReportedAndForgotten() throws Exception {
+        Future<Void> future = DeviceHelper.prewarm(context, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                throw new RejectedExecutionException();
+            }
+        });
+        assertFailed(future, RejectedExecutionException.class);
+        assertNotSame(future, DeviceHelper.prewarm(context, DIRECT));
+    }
+
+    @Test
+    public void nestedRejectionReported() throws Exception {
+        Future<Void> future = DeviceHelper.prewarm(context, new Executor() {
+            private boolean accepted;
+
+            @Override
+            public void execute(Runnable command) {
+                if (accepted) {
+                    throw new RejectedExecutionException();
+                }
+                accepted = true;
+                command.run();
+            }
+        });
+        assertFailed(future, RejectedExecutionException.class);
+    }
+
+    @Test
+    public void completionAndFailureExclusive() throws Exception {
+        final int[] notified = new int[1];
+        DeviceHelper.OnPrewarmListener listener = new DeviceHelper.OnPrewarmListener() {
+            @Override
+            public void onPrewarmed() {
+                notified[0]++;
+            }
+        };
+        PrewarmFuture completed = new PrewarmFuture(1, listener);
+        completed.partDone();
+        assertFalse(completed.fail(new IllegalStateException()));
+        completed.get(0, TimeUnit.MILLISECONDS);
+        assertEquals(1, notified[0]);
+
+        PrewarmFuture failed = new PrewarmFuture(2, listener);
+        failed.partDone();
+        assertTrue(failed.fail(new IllegalStateException()));
+        failed.partDone();
+        assertFailed(failed, IllegalStateException.class);
+        assertEquals(1, notified[0]);
+    }
+
+    private static void assertFailed(Future<Void> future, Class<? extends Throwable> cause) throws Exception {
+        assertTrue(future.isDone());
+        try {
+            future.get(0, TimeUnit.MILLISECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(cause.isInstance(e.getCause()));
+        }
+    }
+}
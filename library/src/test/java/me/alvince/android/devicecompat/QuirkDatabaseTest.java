@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.content.Context;
+import android.os.Build;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Lookup of the packaged quirk table
+ *
+ * @author alvince.zy@gmail.com
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.O_MR1)
+public class QuirkDatabaseTest {
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        FakeDevice.reset();
+        context = RuntimeEnvironment.application;
+    }
+
+    @After
+    public void tearDown() {
+        FakeDevice.reset();
+    }
+
+    @Test
+    public void keysMatchedCaseInsensitively() {
+        QuirkDatabase database = QuirkDatabase.get(context);
+        int record = database.find(QuirkDatabase.KEY_DEVICE, "OnePlus6");
+        assertTrue(record >= 0);
+        assertEquals(record, database.find(QuirkDatabase.KEY_DEVICE, "oneplus6"));
+        assertEquals(QuirkDatabase.FLAG_NOTCH | QuirkDatabase.FLAG_NOTCH_HEIGHT_STATUS_BAR, database.flags(record));
+    }
+
+    @Test
+    public void missingKeyNotFound() {
+        QuirkDatabase database = QuirkDatabase.get(context);
+        assertEquals(-1, database.find(QuirkDatabase.KEY_DEVICE, "OnePlus5"));
+        assertEquals(-1, database.find(QuirkDatabase.KEY_MODEL, "OnePlus6"));
+        assertEquals(-1, database.find(QuirkDatabase.KEY_DEVICE, null));
+        assertEquals(-1, QuirkDatabase.EMPTY.find(QuirkDatabase.KEY_DEVICE, "OnePlus6"));
+    }
+
+    @Test
+    public void deviceQuirksOfOnePlus6() {
+        FakeDevice.setBuild("OnePlus", "OnePlus", "OnePlus6", "ONEPLUS A6000");
+
+        QuirkDatabase.DeviceQuirks quirks = QuirkDatabase.get(context).deviceQuirks();
+        assertEquals(DeviceProfile.NOTCH_PRESENT, quirks.notchState());
+        assertEquals(DisplayHelper.getStatusBarSize(context), quirks.notchHeight(context), 0F);
+    }
+
+    @Test
+    public void deviceQuirksMergedByPrecedence() {
+        FakeDevice.setBuild("vivo", "vivo", "PD1732", "vivo X21A");
+
+        QuirkDatabase.DeviceQuirks quirks = QuirkDatabase.get(context).deviceQuirks();
+        assertEquals(DeviceProfile.NOTCH_UNKNOWN, quirks.notchState());
+        assertEquals(DisplayHelper.fromDip(context, 27), quirks.notchHeight(context), 0F);
+    }
+
+    @Test
+    public void deviceQuirksOfUnknownDevice() {
+        FakeDevice.setBuild("generic", "unknown", "generic_x86", "sdk_gphone_x86");
+
+        QuirkDatabase.DeviceQuirks quirks = QuirkDatabase.get(context).deviceQuirks();
+        assertEquals(DeviceProfile.NOTCH_UNKNOWN, quirks.notchState());
+        assertEquals(-1F, quirks.notchHeight(context), 0F);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Metrics listener counting reflection lookups
+ *
+ * @author alvince.zy@gmail.com
+ */
+final class ReflectionCounter implements DeviceCompatMetrics {
+
+    /**
+     * Handles resolved by reflection, cache misses of {@link ReflectionRegistry}
+     */
+    int lookups;
+    /**
+     * Every handle access, cached or not
+     */
+    int accesses;
+    /**
+     * Found handles as {@code class#member}
+     */
+    final Set<String> found = new HashSet<>();
+    final List<String> phases = new ArrayList<>();
+
+    @Override
+    public void onPhase(String phase, String detail, long nanos) {
+        phases.add(phase);
+    }
+
+    @Override
+    public void onReflection(String className, @Nullable String member, boolean cached, boolean found) {
+        accesses++;
+        if (!cached) {
+            lookups++;
+        }
+        if (found) {
+            this.found.add(member != null ? className + "#" + member : className);
+        }
+    }
+
+    @Override
+    public void onFallback(String fallback, String detail) {
+    }
+
+    void clear() {
+        lookups = 0;
+        accesses = 0;
+        found.clear();
+        phases.clear();
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.app.Application;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.Point;
+import android.hardware.display.DisplayManager;
+import android.os.Build;
+import android.util.DisplayMetrics;
+import android.view.Display;
+import android.view.WindowManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowDisplayManager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Per display metrics of {@link DisplayHelper#getScreenMetrics(Context)}
+ *
+ * @author alvince.zy@gmail.com
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.O_MR1, qualifiers = "w360dp-h640dp-xxhdpi")
+public class ScreenMetricsTest {
+
+    private Application context;
+
+    @Before
+    public void setUp() {
+        FakeDevice.reset();
+        context = RuntimeEnvironment.application;
+    }
+
+    @After
+    public void tearDown() {
+        FakeDevice.reset();
+    }
+
+    @Test
+    public void sizeClassOfFrameworkThresholds() {
+        assertEquals(Configuration.SCREENLAYOUT_SIZE_SMALL, ScreenMetrics.sizeClass(426, 320));
+        assertEquals(Configuration.SCREENLAYOUT_SIZE_NORMAL, ScreenMetrics.sizeClass(640, 360));
+        assertEquals(Configuration.SCREENLAYOUT_SIZE_LARGE, ScreenMetrics.sizeClass(960, 600));
+        assertEquals(Configuration.SCREENLAYOUT_SIZE_XLARGE, ScreenMetrics.sizeClass(1280, 800));
+    }
+
+    @Test
+    public void defaultDisplayCached() {
+        ScreenMetrics metrics = DisplayHelper.getScreenMetrics(context);
+        DisplayMetrics real = new DisplayMetrics();
+        defaultDisplay().getRealMetrics(real);
+
+        assertEquals(Display.DEFAULT_DISPLAY, metrics.getDisplayId());
+        assertEquals(real.widthPixels, metrics.getWidthPixels());
+        assertEquals(real.heightPixels, metrics.getHeightPixels());
+        assertEquals(360, metrics.getWidthDp());
+        assertEquals(Configuration.SCREENLAYOUT_SIZE_NORMAL, metrics.getSizeClass());
+        assertEquals(DisplayHelper.getStatusBarSize(context), metrics.getStatusBarSize());
+        assertSame(metrics, DisplayHelper.getScreenMetrics(context));
+        assertFalse(DeviceHelper.isPad(context));
+    }
+
+    @Test
+    public void resolvedIndependentOfCaller() {
+        Configuration config = new Configuration(context.getResources().getConfiguration());
+        config.densityDpi = DisplayMetrics.DENSITY_HIGH;
+        Context scaled = context.createConfigurationContext(config);
+
+        ScreenMetrics metrics = DisplayHelper.getScreenMetrics(scaled);
+        assertEquals(DisplayMetrics.DENSITY_XXHIGH, metrics.getDensityDpi());
+        assertEquals(360, metrics.getWidthDp());
+        assertEquals(DisplayHelper.getStatusBarSize(context), metrics.getStatusBarSize());
+        assertSame(metrics, DisplayHelper.getScreenMetrics(context));
+    }
+
+    @Test
+    public void invalidatedOnDisplayChange() {
+        ScreenMetrics metrics = DisplayHelper.getScreenMetrics(context);
+
+        ShadowDisplayManager.changeDisplay(Display.DEFAULT_DISPLAY, "w600dp-h960dp");
+        ScreenMetrics changed = DisplayHelper.getScreenMetrics(context);
+        assertNotSame(metrics, changed);
+        assertEquals(600, changed.getWidthDp());
+        assertTrue(DeviceHelper.isPad(context));
+    }
+
+    @Test
+    public void invalidatedOnConfigurationChange() {
+        ScreenMetrics metrics = DisplayHelper.getScreenMetrics(context);
+
+        context.onConfigurationChanged(new Configuration(context.getResources().getConfiguration()));
+        assertNotSame(metrics, DisplayHelper.getScreenMetrics(context));
+    }
+
+    @Test
+    public void secondaryDisplay() {
+        ScreenMetrics builtIn = DisplayHelper.getScreenMetrics(context);
+        int displayId = ShadowDisplayManager.addDisplay("w1280dp-h800dp-mdpi");
+        DisplayManager displayManager = (DisplayManager) context.getSystemService(Context.DISPLAY_SERVICE);
+        Context displayContext = context.createDisplayContext(displayManager.getDisplay(displayId));
+
+        ScreenMetrics metrics = DisplayHelper.getScreenMetrics(displayContext);
+        assertEquals(displayId, metrics.getDisplayId());
+        assertEquals(1280, metrics.getWidthPixels());
+        assertEquals(Configuration.SCREENLAYOUT_SIZE_XLARGE, metrics.getSizeClass());
+        assertEquals(0, metrics.getStatusBarSize());
+        assertEquals(0, metrics.getNavigationBarSize());
+        assertEquals(0F, metrics.getNotchHeight(), 0F);
+        assertTrue(DeviceHelper.isPad(displayContext));
+        // built-in display kept
+        assertSame(builtIn, DisplayHelper.getScreenMetrics(context));
+
+        ShadowDisplayManager.removeDisplay(displayId);
+        assertSame(builtIn, DisplayHelper.getScreenMetrics(context));
+    }
+
+    @Test
+    public void entryRevalidatedWhenResourcesMoveDisplay() {
+        MovableContext movable = new MovableContext(
+                context.createConfigurationContext(context.getResources().getConfiguration()));
+        assertEquals(Display.DEFAULT_DISPLAY, DisplayHelper.getScreenMetrics(movable).getDisplayId());
+
+        int displayId = ShadowDisplayManager.addDisplay("w1280dp-h800dp-mdpi");
+        DisplayManager displayManager = (DisplayManager) context.getSystemService(Context.DISPLAY_SERVICE);
+        movable.display = context.createDisplayContext(displayManager.getDisplay(displayId));
+        Resources res = movable.getResources();
+        Configuration config = new Configuration(res.getConfiguration());
+        config.screenWidthDp = 1280;
+        config.densityDpi = DisplayMetrics.DENSITY_MEDIUM;
+        res.updateConfiguration(config, null);
+
+        assertEquals(displayId, DisplayHelper.getScreenMetrics(movable).getDisplayId());
+    }
+
+    @Test
+    public void screenSizeIntoPoint() {
+        Point size = new Point();
+        DisplayHelper.obtainScreenSize(context, size);
+        assertEquals(DisplayHelper.obtainScreenSize(context), size);
+        assertEquals((int) DisplayHelper.fromDip(context, 360), size.x);
+    }
+
+    @Test
+    public void physicalScreenSize() {
+        DisplayMetrics real = new DisplayMetrics();
+        defaultDisplay().getRealMetrics(real);
+
+        Point size = new Point();
+        DisplayHelper.obtainPhysicalScreenSize(context, size);
+        assertEquals(new Point(real.widthPixels, real.heightPixels), size);
+
+        ShadowDisplayManager.changeDisplay(Display.DEFAULT_DISPLAY, "w640dp-h360dp");
+        defaultDisplay().getRealMetrics(real);
+        DisplayHelper.obtainPhysicalScreenSize(context, size);
+        assertEquals(new Point(real.widthPixels, real.heightPixels), size);
+    }
+
+    /**
+     * Context keeping its resources while window moves to another display
+     */
+    private static class MovableContext extends ContextWrapper {
+        Context display;
+
+        MovableContext(Context base) {
+            super(base);
+        }
+
+        @Override
+        public Object getSystemService(String name) {
+            return display != null && Context.WINDOW_SERVICE.equals(name)
+                    ? display.getSystemService(name) : super.getSystemService(name);
+        }
+    }
+
+    private Display defaultDisplay() {
+        return ((WindowManager) context.getSystemService(Context.WINDOW_SERVICE)).getDefaultDisplay();
+    }
+}
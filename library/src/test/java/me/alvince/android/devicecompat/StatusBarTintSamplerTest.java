@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.app.Activity;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
+import android.os.Build;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.Shadows;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Throttling of {@link StatusBarTintSampler}, samples drawn on main thread below {@link Build.VERSION_CODES#O}
+ *
+ * @author alvince.zy@gmail.com
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.N_MR1)
+public class StatusBarTintSamplerTest {
+
+    private Activity activity;
+    private ViewTreeObserver observer;
+    private CountingDrawable background;
+
+    @Before
+    public void setUp() {
+        FakeDevice.reset();
+        activity = Robolectric.setupActivity(Activity.class);
+        View decorView = activity.getWindow().getDecorView();
+        decorView.layout(0, 0, 1080, 1920);
+        observer = decorView.getViewTreeObserver();
+        // window content is drawn as decor background in sandbox
+        background = new CountingDrawable();
+        activity.getWindow().setBackgroundDrawable(background);
+        // clock of sandbox starts below min interval
+        ShadowLooper.idleMainLooper(StatusBarTintSampler.MIN_INTERVAL_DEFAULT);
+    }
+
+    @After
+    public void tearDown() {
+        FakeDevice.reset();
+    }
+
+    @Test
+    public void framesThrottledAndSettled() {
+        StatusBarTintSampler sampler = StatusBarTintSampler.start(activity);
+
+        observer.dispatchOnPreDraw();
+        assertEquals(1, background.draws);
+        finishSample();
+
+        // within min interval, skipped
+        observer.dispatchOnPreDraw();
+        ShadowLooper.idleMainLooper(StatusBarTintSampler.MIN_INTERVAL_DEFAULT / 2);
+        observer.dispatchOnPreDraw();
+        assertEquals(1, background.draws);
+
+        // last skipped frame sampled once drawing settles
+        ShadowLooper.idleMainLooper(StatusBarTintSampler.MIN_INTERVAL_DEFAULT / 2);
+        assertEquals(2, background.draws);
+        finishSample();
+        ShadowLooper.idleMainLooper(StatusBarTintSampler.MIN_INTERVAL_DEFAULT * 2);
+        assertEquals(2, background.draws);
+
+        sampler.stop();
+        ShadowLooper.idleMainLooper(StatusBarTintSampler.MIN_INTERVAL_DEFAULT);
+        observer.dispatchOnPreDraw();
+        assertEquals(2, background.draws);
+    }
+
+    private static void finishSample() {
+        Shadows.shadowOf(StatusBarTintSampler.WorkerHolder.WORKER.getLooper()).runToEndOfTasks();
+        ShadowLooper.runUiThreadTasks();
+    }
+
+    static class CountingDrawable extends ColorDrawable {
+        int draws;
+
+        CountingDrawable() {
+            super(Color.WHITE);
+        }
+
+        @Override
+        public void draw(Canvas canvas) {
+            super.draw(canvas);
+            draws++;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Minimal jcstress style harness, actors of every round are released together by a barrier
+ * so they hit the racy window as close as possible.
+ *
+ * @author alvince.zy@gmail.com
+ */
+final class Stress {
+
+    static final int ACTORS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    static final int ROUNDS = 2000;
+
+    interface Round<S, R> {
+        /**
+         * Fresh state of a round
+         */
+        S newState();
+
+        /**
+         * Called by every actor concurrently
+         */
+        R actor(S state) throws Exception;
+
+        /**
+         * Check state and results of all actors once round finished
+         */
+        void arbiter(S state, List<R> results);
+    }
+
+    private Stress() {
+    }
+
+    static <S, R> void run(final Round<S, R> round) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(ACTORS);
+        try {
+            for (int i = 0; i < ROUNDS; i++) {
+                final S state = round.newState();
+                final CyclicBarrier barrier = new CyclicBarrier(ACTORS);
+                List<Future<R>> futures = new ArrayList<>(ACTORS);
+                for (int a = 0; a < ACTORS; a++) {
+                    futures.add(executor.submit(new Callable<R>() {
+                        @Override
+                        public R call() throws Exception {
+                            barrier.await();
+                            return round.actor(state);
+                        }
+                    }));
+                }
+                List<R> results = new ArrayList<>(ACTORS);
+                for (Future<R> future : futures) {
+                    try {
+                        results.add(future.get());
+                    } catch (ExecutionException e) {
+                        throw new AssertionError(e.getCause());
+                    }
+                }
+                round.arbiter(state, results);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
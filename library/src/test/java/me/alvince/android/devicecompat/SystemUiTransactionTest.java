@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2018 alvince
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.alvince.android.devicecompat;
+
+import android.animation.TimeInterpolator;
+import android.app.Activity;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.view.View;
+import android.view.WindowManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * System UI helpers of {@link DisplayHelper} coalesced by {@link SystemUiTransaction}
+ *
+ * @author alvince.zy@gmail.com
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.O_MR1)
+public class SystemUiTransactionTest {
+
+    private CountingActivity activity;
+    private View decorView;
+
+    @Before
+    public void setUp() {
+        FakeDevice.reset();
+        activity = Robolectric.setupActivity(CountingActivity.class);
+        decorView = activity.getWindow().getDecorView();
+        activity.attributeWrites = 0;
+        activity.brightnessWrites.clear();
+    }
+
+    @After
+    public void tearDown() {
+        ShadowLooper.unPauseMainLooper();
+        FakeDevice.reset();
+    }
+
+    @Test
+    public void helpersAppliedOnceOnNextFrame() {
+        int visibility = decorView.getSystemUiVisibility();
+        ShadowLooper.pauseMainLooper();
+
+        DisplayHelper.makeContentImmersive(activity);
+        DisplayHelper.hideSystemUi(decorView, true);
+        DisplayHelper.reverseSystemUIStandard(activity, true);
+        DisplayHelper.updateBrightness(activity, 128);
+        assertEquals(visibility, decorView.getSystemUiVisibility());
+        assertEquals(0, activity.attributeWrites);
+
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        int applied = decorView.getSystemUiVisibility();
+        assertEquals(1, activity.attributeWrites);
+        assertTrue((applied & View.SYSTEM_UI_FLAG_LAYOUT_FULLSCREEN) != 0);
+        assertTrue((applied & View.SYSTEM_UI_FLAG_FULLSCREEN) != 0);
+        assertTrue((applied & View.SYSTEM_UI_FLAG_LIGHT_STATUS_BAR) != 0);
+        assertEquals(128 / 255F, activity.getWindow().getAttributes().screenBrightness, 0F);
+    }
+
+    @Test
+    public void pendingBrightnessRead() {
+        ShadowLooper.pauseMainLooper();
+
+        DisplayHelper.updateBrightness(activity, 51);
+        assertEquals(0, activity.attributeWrites);
+        assertEquals(51, DisplayHelper.getScreenBrightness(activity));
+    }
+
+    @Test
+    public void rampStartedFromPendingBrightness() {
+        ShadowLooper.pauseMainLooper();
+
+        DisplayHelper.updateBrightness(activity, 50);
+        BrightnessRamp.start(activity, 200, 300L, new TimeInterpolator() {
+            @Override
+            public float getInterpolation(float input) {
+                return input < 1F ? 0.5F : 1F;
+            }
+        });
+
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        List<Float> writes = activity.brightnessWrites;
+        assertEquals(50 / 255F, writes.get(0), 0F);
+        assertEquals(125 / 255F, writes.get(1), 0F);
+        assertEquals(200 / 255F, writes.get(writes.size() - 1), 0F);
+    }
+
+    @Test
+    public void attributesMutatorMergedIntoSingleWrite() {
+        final boolean[] replacedCalled = new boolean[1];
+        ShadowLooper.pauseMainLooper();
+
+        DisplayHelper.updateBrightness(activity, 128);
+        SystemUiTransaction.of(activity.getWindow())
+                .mutateAttributes("dim", new SystemUiTransaction.AttributesMutator() {
+                    @Override
+                    public boolean mutate(@NonNull WindowManager.LayoutParams params) {
+                        replacedCalled[0] = true;
+                        return false;
+                    }
+                })
+                .mutateAttributes("dim", new SystemUiTransaction.AttributesMutator() {
+                    @Override
+                    public boolean mutate(@NonNull WindowManager.LayoutParams params) {
+                        params.dimAmount = 0.3F;
+                        return true;
+                    }
+                })
+                .commit();
+
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(1, activity.attributeWrites);
+        assertEquals(0.3F, activity.getWindow().getAttributes().dimAmount, 0F);
+        assertFalse(replacedCalled[0]);
+    }
+
+    @Test
+    public void nonDecorViewChangedImmediately() {
+        View view = new View(activity);
+        ShadowLooper.pauseMainLooper();
+
+        DisplayHelper.hideSystemUi(view, false);
+        assertTrue((view.getSystemUiVisibility() & View.SYSTEM_UI_FLAG_HIDE_NAVIGATION) != 0);
+    }
+
+    @Test
+    public void reverseModeReappliedAfterImmersive() {
+        assertTrue(DeviceHelper.makeSystemUiReverse(activity, true));
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertTrue((decorView.getSystemUiVisibility() & View.SYSTEM_UI_FLAG_LIGHT_STATUS_BAR) != 0);
+
+        DisplayHelper.makeContentImmersive(activity);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(0, decorView.getSystemUiVisibility() & View.SYSTEM_UI_FLAG_LIGHT_STATUS_BAR);
+
+        assertTrue(DeviceHelper.makeSystemUiReverse(activity, true));
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertTrue((decorView.getSystemUiVisibility() & View.SYSTEM_UI_FLAG_LIGHT_STATUS_BAR) != 0);
+    }
+
+    public static class CountingActivity extends Activity {
+        int attributeWrites;
+        final List<Float> brightnessWrites = new ArrayList<>();
+
+        @Override
+        public void onWindowAttributesChanged(WindowManager.LayoutParams params) {
+            super.onWindowAttributesChanged(params);
+            attributeWrites++;
+            brightnessWrites.add(params.screenBrightness);
+        }
+    }
+}
@@ -29,7 +29,7 @@ class MainActivity : AppCompatActivity() {
                 .plus("\nDEVICE    : ${Build.DEVICE}")
                 .plus("\nDISPLAY   : ${Build.DISPLAY}")
                 .plus("\nPRODUCT   : ${Build.PRODUCT}")
-                .plus("\nPad       : ${if (DeviceHelper.isPad()) "✓" else "✗"}")
+                .plus("\nPad       : ${if (DeviceHelper.isPad(this)) "✓" else "✗"}")
                 .plus("\nNavigation: ${if (DeviceHelper.hasNavigationBar(this)) "✓" else "✗"}")
                 .plus("\nNotch     : ${if (DeviceHelper.hasNotchInScreen(this)) "✓" else "✗"}")
 